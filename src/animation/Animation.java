@@ -1,26 +1,104 @@
 package animation;
 import cellSociety.CellSociety;
+import grid.ActivityMask;
+import grid.ArrayStateBuffer;
 import grid.Grid;
+import grid.Neighborhood;
+import grid.NeighborTable;
+import grid.PaddedRows;
+import grid.StateBuffer;
+import grid.StencilGrid;
 import page.GamePage;
 import page.Parameters;
+import util.CounterRandom;
 
 public abstract class Animation {
 	
 	private CellSociety cellSociety;
 	private Parameters parametersController;
 	private Grid g;
+	private StateBuffer states;
+	private ActivityMask activity;
+	private int edits;
+	private CycleDetector cycles;
+	private ParallelBands bands;
+	private CounterRandom random;
+	private ThreadLocal<RowScratch> scratch;
+	private NeighborTable immediateTable;
+	private NeighborTable allTable;
+	// the arguments of the running stepByRows() or countNeighbors(), read by the bands,
+	// which are made once so a step on one thread allocates nothing
+	private int bandStatus;
+	private boolean bandAll;
+	private RowRule bandRule;
+	private int [] bandCounts;
+	private NeighborTable bandTable;
+	private final ParallelBands.Band stepBand = this::stepRows;
+	private final ParallelBands.Band countRowsBand = this::countRows;
+	private final ParallelBands.Band countCellsBand = this::countCells;
+	
+	/**
+	 * The window and rows a thread steps its bands with, allocated once per thread
+	 * rather than once per band of every step
+	 */
+	private static class RowScratch {
+		private final PaddedRows rows;
+		private final int [] counts;
+		private final byte [] next;
+		
+		RowScratch(int xMax, int yMax, boolean toroidal) {
+			rows = new PaddedRows(xMax, yMax, StencilGrid.HALO, toroidal, -1);
+			counts = new int[xMax];
+			next = new byte[xMax];
+		}
+	}
 	
 	public Animation(CellSociety c, Parameters p) {
 		cellSociety = c;
 		parametersController = p;
 		g = parametersController.getGrid();
+		String configured = (parametersController.getStorage() == null) ? StateBuffer.HEAP : parametersController.getStorage();
+		String storage = chooseStorage(configured);
+		if (!storage.equals(configured)) {
+			System.err.println(getClass().getSimpleName() + " keeps its cells in " + storage
+					+ " storage on this grid instead of the configured " + configured + " storage");
+		}
+		states = StateBuffer.create(parametersController.getCol(), parametersController.getRow(),
+				storage, parametersController.getStorageFile(), parametersController.getNumberOfStatus());
+		random = new CounterRandom(parametersController.getSeed());
+		scratch = ThreadLocal.withInitial(() -> new RowScratch(states.getXMax(), states.getYMax(), g.isToroidal()));
 	}
 	
 	/**
-	 * Performs back end calculations and then properly notifies the front end
+	 * Picks the storage of the cells. Called from the constructor, so only the parameters and the grid are set.
+	 * Simulations whose steps read getFront() need the heap, which is the default; the ones that can
+	 * step every storage on some grids override it.
+	 * @param configured the storage of the configuration file
+	 * @return the storage to create
+	 */
+	protected String chooseStorage (String configured) {
+		return StateBuffer.HEAP;
+	}
+	
+	/**
+	 * Performs back end calculations on the state buffer, which the front end reads from.
+	 * Synchronous simulations read getFront(), write every cell of getBack() and then call swapBuffers(),
+	 * or hand their rule to stepByRows(), which also works on storage outside the heap.
+	 * Sequential simulations, where later moves in a step see earlier ones, work on getFront() in place.
 	 */
 	public abstract void calculateMove();
 	
+	/**
+	 * Advances the simulation by a number of steps.
+	 * Simulations that can jump ahead override it to skip the steps in between.
+	 * @param steps the number of steps
+	 */
+	public void advance (long steps) {
+		for (long s = 0; s < steps; s++) {
+			calculateMove();
+		}
+	}
+	
 	/**
 	 * allows access of this instance to the subclasses
 	 * @return the cell society instance
@@ -38,23 +116,51 @@ public abstract class Animation {
 	}
 	
 	/**
-	 * The method needed to get the array from the Page
-	 * for the animation
-	 * @param The String sent to get the correct page
-	 * @return the array needed for the animation
+	 * Gives the subclasses random numbers keyed by step and cell, seeded from the XML file,
+	 * so a stochastic step gives the same result on any number of threads
+	 * @return the random generator of this animation
 	 */
-	public int [][] getArray(String s) {
-		int i, j;
-		GamePage p = getNeededPage(s);
-		int [][] intArray = new int[ parametersController.getRow()][parametersController.getCol()];
-		
-		for (i = 0; i < intArray.length; i++) {
-			for (j = 0; j < intArray[0].length; j++) {
-				intArray[i][j] = p.getCell(i, j).getStatus();
-			}
+	protected CounterRandom getRandom(){
+		return random;
+	}
+	
+	/**
+	 * The buffer holding the status of every cell.
+	 * The simulation steps it in place and the page reads it to draw the cells.
+	 * @return the state buffer of this animation
+	 */
+	public StateBuffer getStateBuffer() {
+		return states;
+	}
+	
+	/**
+	 * Gives the subclasses the statuses of the current step
+	 * @return the front array of the state buffer
+	 */
+	protected byte [] getFront() {
+		return getArrayStateBuffer().getFront();
+	}
+	
+	/**
+	 * Gives the subclasses the array to write the statuses of the next step into
+	 * @return the back array of the state buffer
+	 */
+	protected byte [] getBack() {
+		return getArrayStateBuffer().getBack();
+	}
+	
+	private ArrayStateBuffer getArrayStateBuffer() {
+		if (!(states instanceof ArrayStateBuffer)) {
+			throw new IllegalStateException("This simulation needs the grid on the heap, set <storage> to heap");
 		}
-		
-		return intArray;
+		return (ArrayStateBuffer) states;
+	}
+	
+	/**
+	 * Ends a synchronous step by making the back array the new front array
+	 */
+	protected void swapBuffers() {
+		states.swap();
 	}
 	
 	/** 
@@ -67,24 +173,278 @@ public abstract class Animation {
 	}
 	
 	/**
-	 * Changes the actual front end page to keep up with the back end calculations
-	 * @param grid a two dimensional array of the statuses for all cells
-	 * @param p the correct page for this particular animation
+	 * Gives access of the grid to the subclasses
+	 * @return the grid from the parent class
 	 */
-	protected void setCells (int [][] grid, GamePage p) {
-		int i, j;
-		for (i = 0; i < grid.length; i++) {
-			for (j = 0; j < grid[0].length; j++) {
-				p.getCell(i, j).changeStatus(grid[i][j]);
+	protected Grid getGrid () {
+		return g;
+	}
+	
+	/**
+	 * Gives the subclasses the neighborhood chosen in the XML file, if there is one
+	 * @return the neighborhood, or null to use the neighbor tables of the grid
+	 */
+	protected Neighborhood getNeighborhood () {
+		return parametersController.getNeighborhood();
+	}
+	
+	/**
+	 * @return whether stepByRows() can step this grid
+	 */
+	protected boolean canStepByRows () {
+		return g instanceof StencilGrid;
+	}
+	
+	/**
+	 * Steps a synchronous simulation whose rule depends on how many neighbors hold one status,
+	 * reading and writing one row at a time through the state buffer, so it works on any storage.
+	 * Only tiles near a change of the last step are evaluated, so the rule must keep a cell
+	 * whose neighborhood did not change as it is. Elsewhere the back copy already holds the
+	 * current statuses, since those tiles did not change in the last step either.
+	 * Bands of whole tile rows are stepped in parallel when more than one thread is configured.
+	 * @param status the status to count
+	 * @param all whether to count all neighbors or only the ones facing a full side
+	 * @param rule the rule giving the next statuses of a row
+	 */
+	protected void stepByRows (int status, boolean all, RowRule rule) {
+		if (activity == null) {
+			activity = new ActivityMask(states.getXMax(), states.getYMax(), g.isToroidal());
+		}
+		if (states.getEdits() != edits) {
+			activity.markAll();
+		}
+		activity.beginStep();
+		bandStatus = status;
+		bandAll = all;
+		bandRule = rule;
+		inBands(states.getYMax(), ActivityMask.TILE, stepBand);
+		states.swap();
+		activity.endStep();
+		edits = states.getEdits();
+	}
+	
+	private void stepRows (int yFrom, int yTo) {
+		int x, y, tx, from, to;
+		boolean loaded = false;
+		RowScratch own = scratch.get();
+		PaddedRows rows = own.rows;
+		int [] rowCounts = own.counts;
+		byte [] nextRow = own.next;
+		
+		for (y = yFrom; y < yTo; y++) {
+			if (!activity.isRowActive(y)) {
+				loaded = false;
+				continue;
 			}
+			if (loaded) {
+				rows.next(states);
+			}
+			else {
+				rows.moveTo(states, y);
+				loaded = true;
+			}
+			byte [] current = rows.getRow(0);
+			int halo = rows.getHalo();
+			for (tx = 0; tx < activity.getTilesX(); tx++) {
+				from = tx << ActivityMask.SHIFT;
+				to = Math.min(from + ActivityMask.TILE, states.getXMax());
+				if (!activity.isActive(tx, y >> ActivityMask.SHIFT)) {
+					System.arraycopy(current, halo + from, nextRow, from, to - from);
+					continue;
+				}
+				((StencilGrid) g).countRow(rows, bandStatus, bandAll, rowCounts, 0, from, to);
+				bandRule.nextRow(current, halo, rowCounts, nextRow, y, from, to);
+				for (x = from; x < to; x++) {
+					if (nextRow[x] != current[halo + x]) {
+						activity.markChanged(x, y);
+						break;
+					}
+				}
+			}
+			states.writeNextRow(y, nextRow, 0);
 		}
 	}
 	
 	/**
-	 * Gives access of the grid to the subclasses
-	 * @return the grid from the parent class
+	 * Starts recording the tiles a step changes, for simulations that step without stepByRows()
+	 * and mark the cells they change themselves, so the page and the cycle detector only
+	 * visit those tiles
+	 * @return the mask to mark the changed cells in until endChanges()
 	 */
-	protected Grid getGrid () {
-		return g;
+	protected ActivityMask beginChanges () {
+		if (activity == null) {
+			activity = new ActivityMask(states.getXMax(), states.getYMax(), g.isToroidal());
+		}
+		activity.beginStep();
+		return activity;
+	}
+
+	/**
+	 * Ends a step begun with beginChanges(): the marked tiles become the changed tiles
+	 */
+	protected void endChanges () {
+		activity.endStep();
+	}
+
+	/**
+	 * Makes the next stepByRows() evaluate every tile, for simulations that also step cells another way
+	 */
+	protected void markAllActive () {
+		edits = -1;
+	}
+	
+	/**
+	 * Runs a task over the range [0, total), split into bands that run in parallel when
+	 * the configuration asks for more than one thread, or as a single band otherwise.
+	 * The bands only read the current statuses, so a task that writes only inside its own band
+	 * gives the same result either way.
+	 * @param total the end of the range, in rows or cells
+	 * @param align the bands start at multiples of it
+	 * @param band the task
+	 */
+	protected void inBands (int total, int align, ParallelBands.Band band) {
+		int threads = parametersController.getThreads();
+		
+		if (threads <= 1) {
+			band.run(0, total);
+			return;
+		}
+		if ((bands == null) || (bands.getThreads() != threads)) {
+			close();
+			bands = new ParallelBands(threads);
+		}
+		bands.run(total, align, band);
+	}
+	
+	/**
+	 * Stops the threads stepping the bands and drops the neighbor tables, for when the
+	 * simulation is replaced. A later step starts or builds them again if it needs them.
+	 */
+	public void close () {
+		if (bands != null) {
+			bands.close();
+			bands = null;
+		}
+		immediateTable = null;
+		allTable = null;
+	}
+	
+	/**
+	 * The tiles whose cells changed in the last step, for the page to redraw only those
+	 * @return the changed tiles, or null if the simulation does not track them
+	 */
+	public ActivityMask getChangedTiles () {
+		return activity;
+	}
+	
+	/**
+	 * Records the statuses after a step and checks whether the simulation has entered a cycle.
+	 * Only simulations that say so and report their changed tiles are checked.
+	 * @param step the number of the step just taken
+	 * @return the period of the cycle, or 0 if none is confirmed
+	 */
+	public int detectCycle (int step) {
+		if (!detectsCycles() || (getChangedTiles() == null)) {
+			return 0;
+		}
+		if (cycles == null) {
+			cycles = new CycleDetector(states);
+		}
+		return cycles.update(step, getChangedTiles());
+	}
+	
+	/**
+	 * A repeated grid only means a cycle when the step is deterministic and the buffer
+	 * holds the whole state of the simulation, with no random draws, hidden fields or
+	 * cells outside the grid, so only such simulations override it to return true
+	 * @return whether detectCycle() checks this simulation
+	 */
+	protected boolean detectsCycles () {
+		return false;
+	}
+
+	/**
+	 * Simulations that can tell when nothing will change any more override it to end the run
+	 * @return whether the simulation is over
+	 */
+	public boolean isFinished () {
+		return false;
+	}
+	
+	/**
+	 * Counts, for every cell, the neighbors in the current statuses holding a status.
+	 * Shapes with a fixed stencil count a padded row at a time without edge checks,
+	 * other shapes walk the neighbor table.
+	 * @param status the status to count
+	 * @param all whether to count all neighbors or only the ones facing a full side
+	 * @param counts the array the count of each cell is written into, at its linear index
+	 */
+	protected void countNeighbors (int status, boolean all, int [] counts) {
+		bandStatus = status;
+		bandAll = all;
+		bandCounts = counts;
+		if (g instanceof StencilGrid) {
+			inBands(states.getYMax(), 1, countRowsBand);
+		}
+		else {
+			bandTable = all ? getAllTable() : getImmediateTable();
+			inBands(getFront().length, 1, countCellsBand);
+		}
+	}
+	
+	private void countRows (int yFrom, int yTo) {
+		int y;
+		PaddedRows rows = scratch.get().rows;
+		
+		for (y = yFrom; y < yTo; y++) {
+			if (y == yFrom) {
+				rows.moveTo(states, y);
+			}
+			else {
+				rows.next(states);
+			}
+			((StencilGrid) g).countRow(rows, bandStatus, bandAll, bandCounts, y * states.getXMax(), 0, states.getXMax());
+		}
+	}
+	
+	private void countCells (int from, int to) {
+		int i, k;
+		NeighborTable table = bandTable;
+		int [] neighbors = table.getNeighbors();
+		int [] counts = bandCounts;
+		byte [] front = getFront();
+		
+		for (i = from; i < to; i++) {
+			counts[i] = 0;
+			for (k = table.getStart(i); k < table.getEnd(i); k++) {
+				if (front[neighbors[k]] == bandStatus) {
+					counts[i]++;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Gives the subclasses the table of neighbors facing a full side of each cell,
+	 * built on first use and kept until close()
+	 * @return the neighbor table for the grid
+	 */
+	protected NeighborTable getImmediateTable () {
+		if (immediateTable == null) {
+			immediateTable = NeighborTable.buildImmediateTable(g, states.getXMax(), states.getYMax());
+		}
+		return immediateTable;
+	}
+	
+	/**
+	 * Gives the subclasses the table of all neighbors of each cell,
+	 * built on first use and kept until close()
+	 * @return the neighbor table for the grid
+	 */
+	protected NeighborTable getAllTable () {
+		if (allTable == null) {
+			allTable = NeighborTable.buildAllTable(g, states.getXMax(), states.getYMax());
+		}
+		return allTable;
 	}
 }
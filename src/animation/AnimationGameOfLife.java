@@ -1,70 +1,182 @@
 package animation;
-import java.util.ArrayList;
-
-import cell.Indices;
 import cellSociety.CellSociety;
+import grid.ActivityMask;
 import grid.Grid;
+import grid.PackedStateBuffer;
 import grid.SquareGrid;
-import page.PageGameOfLife;
+import grid.StateBuffer;
 import page.Parameters;
 
 public class AnimationGameOfLife extends Animation {
 	
 	private static final int ONVALUE = 1;
-	private static final int OFFVALUE = 0;
+	
+	private LifeRule rule;
+	// next status of a cell at (status << shift) | live neighbors
+	private byte [] table;
+	private int shift;
+	private int [] counts;
+	private LifeBitboard bitboard;
+	private HashLife hashLife;
+	private SparseLife sparse;
+	private int sparseEdits = -1;
+	// made once, so a step on one thread allocates nothing
+	private final RowRule rowRule = this::nextRow;
+	private final ParallelBands.Band changeBand = this::checkChange;
+	private ActivityMask changes;
 	
 	public AnimationGameOfLife(CellSociety c, Parameters p) {
 		super(c, p);
+		rule = LifeRule.parse((p.getRule() == null) ? LifeRule.LIFE : p.getRule());
+		int maxCount = Grid.MAX_NEIGHBORS;
+		if (getNeighborhood() != null) {
+			int side = 2 * getNeighborhood().getRadius() + 1;
+			maxCount = side * side - 1;
+		}
+		shift = LifeRule.tableShift(maxCount);
+		table = rule.compile(maxCount);
+	}
+	
+	/**
+	 * The bitboard engine steps one bit per cell, stepByRows() and the other engines work on any
+	 * storage, and a neighborhood or a shape without a stencil needs the heap
+	 */
+	@Override
+	protected String chooseStorage(String configured) {
+		if ((getNeighborhood() != null) || !canStepByRows()) {
+			return StateBuffer.HEAP;
+		}
+		if ("bitboard".equals(getParametersController().getEngine()) && (getGrid() instanceof SquareGrid)) {
+			return StateBuffer.PACKED;
+		}
+		return configured;
 	}
 	
 	public void calculateMove() {
-		boolean [][] shouldChange;
+		if (useHashLife()) {
+			advance(1);
+			return;
+		}
+		if (useSparse()) {
+			stepSparse();
+			return;
+		}
+		if (useBitboard()) {
+			if (bitboard == null) {
+				bitboard = new LifeBitboard(getGrid().isToroidal(), rule);
+			}
+			bitboard.step((PackedStateBuffer) getStateBuffer(), beginChanges());
+			endChanges();
+			return;
+		}
+		if ((getNeighborhood() == null) && canStepByRows()) {
+			stepByRows(ONVALUE, true, rowRule);
+			return;
+		}
 		
-		int [][] grid = getArray("Game of Life");
-			
-		shouldChange = new boolean[grid.length][grid[0].length];
+		byte [] grid = getFront();
 		
-		checkChange(shouldChange, grid);
+		if (counts == null) {
+			counts = new int[grid.length];
+		}
 		
-		changeGrid(shouldChange, grid);
+		// a neighborhood of larger radius allows Larger than Life style rules
+		if (getNeighborhood() != null) {
+			getNeighborhood().countStates(grid, getStateBuffer().getXMax(), getStateBuffer().getYMax(), ONVALUE, counts);
+		}
+		else {
+			countNeighbors(ONVALUE, true, counts);
+		}
+		
+		changes = beginChanges();
+		inBands(grid.length, 1, changeBand);
 		
-		setCells(grid, (PageGameOfLife) getNeededPage("Game of Life"));
+		swapBuffers();
+		endChanges();
 	}
 	
-	private void checkChange(boolean [][] shouldChange, int [][] grid) {
-		int i, j, k, total;
-		
-		ArrayList <Indices> neighbors;
+	/**
+	 * Jumps straight to a later generation with HashLife when it is chosen and exact on the grid
+	 */
+	@Override
+	public void advance(long steps) {
+		if (!useHashLife()) {
+			super.advance(steps);
+			return;
+		}
+		if (hashLife == null) {
+			hashLife = new HashLife(getParametersController().getCacheNodes(), rule);
+		}
+		hashLife.advance(getStateBuffer(), steps, beginChanges());
+		endChanges();
+	}
+	
+	private boolean useHashLife() {
+		return "hashlife".equals(getParametersController().getEngine()) && (getNeighborhood() == null)
+				&& HashLife.supports(getGrid(), getStateBuffer());
+	}
+	
+	/**
+	 * Steps the unbounded universe and shows the window of it at the origin.
+	 * Cells edited on the page since the last step are copied into the universe first.
+	 */
+	private void stepSparse() {
+		if (sparse == null) {
+			sparse = new SparseLife(rule);
+		}
+		if (getStateBuffer().getEdits() != sparseEdits) {
+			sparse.load(getStateBuffer());
+		}
+		sparse.step();
+		sparse.copyTo(getStateBuffer(), beginChanges());
+		endChanges();
+		sparseEdits = getStateBuffer().getEdits();
+	}
+	
+	private boolean useSparse() {
+		return "sparse".equals(getParametersController().getEngine()) && (getNeighborhood() == null)
+				&& (getGrid() instanceof SquareGrid) && !rule.isBirth(0);
+	}
+	
+	private boolean useBitboard() {
+		return "bitboard".equals(getParametersController().getEngine()) && (getNeighborhood() == null)
+				&& (getGrid() instanceof SquareGrid) && LifeBitboard.supports(getStateBuffer());
+	}
+	
+	/**
+	 * Every step of Life is deterministic and depends only on the grid,
+	 * except in the unbounded universe, where cells outside the window keep changing
+	 * while the window repeats, for example after a glider leaves it
+	 */
+	@Override
+	protected boolean detectsCycles() {
+		return !useSparse();
+	}
+	
+	private void checkChange(int from, int to) {
+		int i;
+		int xMax = getStateBuffer().getXMax();
+		byte [] grid = getFront();
+		byte [] next = getBack();
 		
-		for (i = 0; i < grid.length; i++) {
-			for (j = 0; j < grid[0].length; j++) {
-				total = 0;
-				neighbors = getGrid().getAllNeighbors(i, j, grid.length, grid[0].length);
-				
-				for (k = 0; k < neighbors.size(); k++) {
-					total += grid[neighbors.get(k).getX()][neighbors.get(k).getY()];
-				}
-				
-				shouldChange[i][j] = (((grid[i][j] == ONVALUE) && ((total < 2) || (total > 3))) || ((grid[i][j] == OFFVALUE) && (total == 3))); 
+		for (i = from; i < to; i++) {
+			next[i] = nextStatus(grid[i], counts[i]);
+			if (next[i] != grid[i]) {
+				changes.markChanged(i % xMax, i / xMax);
 			}
 		}
 	}
 	
-	private void changeGrid(boolean [][] shouldChange, int [][] grid) {
-		int i, j;
+	private void nextRow(byte [] current, int offset, int [] total, byte [] next, int y, int from, int to) {
+		int x;
 		
-		for (i = 0; i < grid.length; i++) {
-			for (j = 0; j < grid.length; j++) {
-				if (shouldChange[i][j]) {
-					if (grid[i][j] == ONVALUE) {
-						grid[i][j] = OFFVALUE;
-					}
-					else {
-						grid[i][j] = ONVALUE;
-					}
-				}
-			}
+		for (x = from; x < to; x++) {
+			next[x] = nextStatus(current[offset + x], total[x]);
 		}
 	}
 	
+	private byte nextStatus(int status, int total) {
+		return table[((status & 1) << shift) | total];
+	}
+	
 }
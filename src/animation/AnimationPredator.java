@@ -1,12 +1,7 @@
 package animation;
 
-import java.util.ArrayList;
-
-import cell.Indices;
 import cellSociety.CellSociety;
 import grid.Grid;
-import grid.SquareGrid;
-import page.PagePredator;
 import page.Parameters;
 
 public class AnimationPredator extends Animation{
@@ -14,11 +9,17 @@ public class AnimationPredator extends Animation{
 	private final static int EMPTYNUMBER = 0;
 	private final static int FISHNUMBER = 1;
 	private final static int SHARKNUMBER = 2;
+	// which draw of a cell in a step each random choice is
+	private final static int SHARKDRAW = 0;
+	private final static int FISHDRAW = 1;
 	
 	private double sharkLife;
 	private double fishLife;
 	private boolean firstTime;
-	private double [][] lives;
+	private double [] lives;
+	private int [] neighbors = new int[Grid.MAX_NEIGHBORS];
+	private int [] spots = new int[Grid.MAX_NEIGHBORS];
+	private long step;
 	
 
 	public AnimationPredator(CellSociety c, Parameters p) {
@@ -28,127 +29,124 @@ public class AnimationPredator extends Animation{
 		fishLife = p.getItemTurnover(FISHNUMBER);
 	}
 	
+	/**
+	 * Sharks and then fish move one after another in place,
+	 * so later moves in a step see the earlier ones.
+	 */
 	public void calculateMove() {
-		int [][] grid = getArray("Predator");
+		byte [] grid = getFront();
+		step++;
 		
 		
 		if (firstTime) {
-			lives = new double[grid.length][grid[0].length];
+			lives = new double[grid.length];
 			createLives(grid);
 		}
 		
 		progressThrough(grid);
-		setCells(grid, (PagePredator)getNeededPage("Predator"));
 	}
 	
-	private void createLives(int [][] grid) {
-		int i,j;
+	private void createLives(byte [] grid) {
+		int i;
 		firstTime = false;
 		for (i = 0; i < grid.length; i++) {
-			for (j = 0; j < grid[0].length; j++) {
-				if (grid[i][j] == FISHNUMBER) {
-					lives[i][j] = 0;
-				}
-				else if (grid[i][j] == SHARKNUMBER) {
-					lives[i][j] = sharkLife;
-				}
-				else {
-					lives[i][j] = -1;
-				}
+			if (grid[i] == FISHNUMBER) {
+				lives[i] = 0;
+			}
+			else if (grid[i] == SHARKNUMBER) {
+				lives[i] = sharkLife;
+			}
+			else {
+				lives[i] = -1;
 			}
 		}
 	}
 	
-	private void progressThrough(int [][] grid) {
+	private void progressThrough(byte [] grid) {
 		sharkProgress(grid);
 		fishProgress(grid);
 	}
 	
-	private void sharkProgress (int [][] grid) {
-		int i, j, rand, x, y;
+	private void sharkProgress (byte [] grid) {
+		int i, rand, x, found;
 		
 		
 		for (i = 0; i < grid.length; i++) {
-			for (j = 0; j < grid[0].length; j++) {
-				if (grid[i][j] == SHARKNUMBER) {
-					if (lives[i][j] <= 0) {
-						grid[i][j] = EMPTYNUMBER;
-					}
-					else if (checkFor(i, j, grid, FISHNUMBER).size() > 0) {
-						lives[i][j] = sharkLife;
-						rand = getRandomForList(checkFor(i, j, grid, FISHNUMBER).size());
-						x = checkFor(i, j, grid, FISHNUMBER).get(rand).getX();
-						y = checkFor(i, j, grid, FISHNUMBER).get(rand).getY();
-						grid[x][y] = SHARKNUMBER;
-						lives[x][y] = sharkLife;
-					}
-					else if (checkFor(i, j, grid, EMPTYNUMBER).size() > 0) {
-						rand = getRandomForList(checkFor(i, j, grid, EMPTYNUMBER).size());
-						x = checkFor(i, j, grid, EMPTYNUMBER).get(rand).getX();
-						y = checkFor(i, j, grid, EMPTYNUMBER).get(rand).getY();
-						grid[x][y] = SHARKNUMBER;
-						lives[x][y] = lives[i][j] - 1;
-						grid[i][j] = EMPTYNUMBER;
-						lives[i][j] = -1;
-					}
-					else {
-						lives[i][j]--;
-					}
+			if (grid[i] == SHARKNUMBER) {
+				if (lives[i] <= 0) {
+					grid[i] = EMPTYNUMBER;
+				}
+				else if ((found = checkFor(i, grid, FISHNUMBER)) > 0) {
+					lives[i] = sharkLife;
+					rand = getRandomForList(i, SHARKDRAW, found);
+					x = spots[rand];
+					grid[x] = SHARKNUMBER;
+					lives[x] = sharkLife;
+				}
+				else if ((found = checkFor(i, grid, EMPTYNUMBER)) > 0) {
+					rand = getRandomForList(i, SHARKDRAW, found);
+					x = spots[rand];
+					grid[x] = SHARKNUMBER;
+					lives[x] = lives[i] - 1;
+					grid[i] = EMPTYNUMBER;
+					lives[i] = -1;
+				}
+				else {
+					lives[i]--;
 				}
 			}
 		}
 	}
-	private void fishProgress(int [][] grid) {
-		int i, j, rand, x, y;
+	private void fishProgress(byte [] grid) {
+		int i, rand, x, found;
 		
 		for (i = 0; i < grid.length; i++) {
-			for (j = 0; j < grid[0].length; j++) {
-				if (grid[i][j] == FISHNUMBER) {
-					if (checkFor(i, j, grid, EMPTYNUMBER).size() != 0) {
-						if (lives[i][j] >= fishLife) {
-							lives[i][j] = 0;
-							rand = getRandomForList(checkFor(i, j, grid, EMPTYNUMBER).size());
-							x = checkFor(i, j, grid, EMPTYNUMBER).get(rand).getX();
-							y = checkFor(i, j, grid, EMPTYNUMBER).get(rand).getY();
-							lives[x][y] = 0;
-							grid[x][y] = FISHNUMBER;
-						}
-						else {
-							lives[i][j]++;
-							rand = getRandomForList(checkFor(i, j, grid, EMPTYNUMBER).size());
-							x = checkFor(i, j, grid, EMPTYNUMBER).get(rand).getX();
-							y = checkFor(i, j, grid, EMPTYNUMBER).get(rand).getY();
-							lives[x][y] = lives[i][j];
-							grid[x][y] = grid[i][j];
-							lives[i][j] = -1;
-							grid[i][j] = EMPTYNUMBER;
-						}
+			if (grid[i] == FISHNUMBER) {
+				found = checkFor(i, grid, EMPTYNUMBER);
+				if (found != 0) {
+					if (lives[i] >= fishLife) {
+						lives[i] = 0;
+						rand = getRandomForList(i, FISHDRAW, found);
+						x = spots[rand];
+						lives[x] = 0;
+						grid[x] = FISHNUMBER;
 					}
 					else {
-						lives[i][j]++;
+						lives[i]++;
+						rand = getRandomForList(i, FISHDRAW, found);
+						x = spots[rand];
+						lives[x] = lives[i];
+						grid[x] = grid[i];
+						lives[i] = -1;
+						grid[i] = EMPTYNUMBER;
 					}
 				}
+				else {
+					lives[i]++;
+				}
 			}
 		}
 	}
 	
-	private ArrayList <Indices> checkFor(int i, int j, int [][] grid, int type) {
-		ArrayList <Indices> returnList = new ArrayList<Indices>();
-		ArrayList <Indices> neighbors = getGrid().getImmediateNeighbors(i, j, grid.length, grid[0].length);
+	/**
+	 * Finds the immediate neighbors of a cell that hold the given type
+	 * @return the number of matching neighbors, whose linear indices are written into spots
+	 */
+	private int checkFor(int i, byte [] grid, int type) {
+		int found = 0;
+		int xMax = getStateBuffer().getXMax();
+		int count = getGrid().getImmediateNeighbors(i % xMax, i / xMax, xMax, getStateBuffer().getYMax(), neighbors);
 		
-		for (int k = 0; k < neighbors.size(); k++) {
-			checkSpot(neighbors.get(k).getX(), neighbors.get(k).getY(), returnList, grid, type);
-		}
-		return returnList;
-	}
-	private void checkSpot (int x, int y, ArrayList <Indices> returnList, int [][] grid, int type) {
-			if (grid[x][y] == type) {
-				returnList.add(new Indices(x, y));
+		for (int k = 0; k < count; k++) {
+			if (grid[neighbors[k]] == type) {
+				spots[found++] = neighbors[k];
 			}
+		}
+		return found;
 	}
 	
-	private int getRandomForList (int size) {
-		return (int)((Math.random() * size) - .001);
+	private int getRandomForList (int cell, int draw, int size) {
+		return getRandom().nextInt(step, cell, draw, size);
 	}
 
 }
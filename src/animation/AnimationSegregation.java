@@ -1,14 +1,9 @@
 package animation;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
-import cell.Indices;
 import cellSociety.CellSociety;
 import grid.Grid;
-import grid.SquareGrid;
-import page.Page;
-import page.PageGameOfLife;
-import page.PageSegregation;
 import page.Parameters;
 
 public class AnimationSegregation extends Animation {
@@ -18,74 +13,273 @@ public class AnimationSegregation extends Animation {
 	private final static int SECONDVALUE = 2;
 
 	private double neededNeighbors;
+	private CellPool unhappy;
+	private CellPool vacancies;
+	private int[] movers;
+	private int[] firstCounts;
+	private int[] secondCounts;
+	private int[] neighbors;
+	private int[] touched;
+	private int touchedCount;
+	private boolean[] isTouched;
+	private boolean[] flags;
+	private long[] claims;
+	private int[] targets;
+	private byte[] types;
+	private int countedEdits = -1;
+	private long step;
 
 	public AnimationSegregation(CellSociety c, Parameters p) {
 		super(c, p);
 	}
 
+	/**
+	 * Every agent decides whether it moves from the same snapshot,
+	 * then the moves happen one after another in place.
+	 * The neighbor counts, the unsatisfied agents and the empty cells are kept between steps
+	 * and only updated around the cells that moved, so they are gathered in full only on
+	 * the first step or after cells were edited.
+	 * With more than one thread, the agents are evaluated in parallel bands and
+	 * the moves are resolved in parallel, with the same result as on one thread.
+	 */
 	public void calculateMove() {
-		neededNeighbors = this.getParametersController().getSatisfaction();
+		int k;
+		double needed = this.getParametersController().getSatisfaction();
+		step++;
 
-		int[][] grid = getArray("Segregation");
-		boolean[][] shouldChange = new boolean[grid.length][grid[0].length];
-
-		checkSurrounding(shouldChange, grid);
+		byte[] grid = getFront();
+		if ((unhappy == null) || (getStateBuffer().getEdits() != countedEdits)) {
+			countAll(grid);
+			neededNeighbors = needed;
+			checkSurrounding(grid);
+		}
+		else if (needed != neededNeighbors) {
+			neededNeighbors = needed;
+			checkSurrounding(grid);
+		}
 
-		changeCells(shouldChange, grid);
+		if (getParametersController().getThreads() > 1) {
+			changeCellsInParallel(grid);
+		} else {
+			changeCells(grid);
+		}
 
-		setCells(grid, (PageSegregation) getNeededPage("Segregation"));
+		inBands(touchedCount, 1, (from, to) -> checkTouched(grid, from, to));
+		for (k = 0; k < touchedCount; k++) {
+			setUnhappy(touched[k], flags[k]);
+			isTouched[touched[k]] = false;
+		}
+		touchedCount = 0;
 	}
 
-	private void checkSurrounding(boolean[][] shouldChange, int[][] grid) {
-		int i, j, k;
-		double agree = 0, disagree = 0;
-		ArrayList<Indices> neighbors;
-
-		for (i = 1; i < grid.length; i++) {
-			for (j = 1; j < grid[0].length; j++) {
-				neighbors = getGrid().getAllNeighbors(i, j, grid.length, grid[0].length);
-				
-				for (k = 0; k < neighbors.size(); k++) {
-					if (grid[i][j] == grid[neighbors.get(k).getX()][neighbors.get(k).getY()]) {
-						agree += 1;
-					} else if (grid[neighbors.get(k).getX()][neighbors.get(k).getY()] != NOVALUE) {
-						disagree += 1;
-					}
+	private void countAll(byte[] grid) {
+		int i;
 
-				}
-				shouldChange[i][j] = ((agree / disagree) <= neededNeighbors);
-				agree = 0;
-				disagree = 0;
+		if (unhappy == null) {
+			unhappy = new CellPool(grid.length);
+			vacancies = new CellPool(grid.length);
+			movers = new int[grid.length];
+			firstCounts = new int[grid.length];
+			secondCounts = new int[grid.length];
+			isTouched = new boolean[grid.length];
+			flags = new boolean[grid.length];
+			touched = new int[16];
+			if (getNeighborhood() != null) {
+				neighbors = new int[getNeighborhood().getMaxNeighbors()];
+			} else {
+				neighbors = new int[Grid.MAX_NEIGHBORS];
+			}
+		}
+
+		// a neighborhood of larger radius allows wider neighborhoods
+		if (getNeighborhood() != null) {
+			int xMax = getStateBuffer().getXMax();
+			int yMax = getStateBuffer().getYMax();
+			getNeighborhood().countStates(grid, xMax, yMax, FIRSTVALUE, firstCounts);
+			getNeighborhood().countStates(grid, xMax, yMax, SECONDVALUE, secondCounts);
+		} else {
+			countNeighbors(FIRSTVALUE, true, firstCounts);
+			countNeighbors(SECONDVALUE, true, secondCounts);
+		}
+		vacancies.clear();
+		for (i = 0; i < grid.length; i++) {
+			if (grid[i] == NOVALUE) {
+				vacancies.add(i);
 			}
 		}
+		countedEdits = getStateBuffer().getEdits();
 	}
 
-	private void changeCells(boolean[][] shouldChange, int[][] grid) {
-		int i, j, a, b, rand;
-		ArrayList<Indices> emptyCells = new ArrayList<Indices>();
-		ArrayList<Indices> changeCells = new ArrayList<Indices>();
+	private void checkSurrounding(byte[] grid) {
+		int i;
+
+		inBands(grid.length, 1, (from, to) -> {
+			for (int j = from; j < to; j++) {
+				flags[j] = isUnsatisfied(grid, j);
+			}
+		});
 		for (i = 0; i < grid.length; i++) {
-			for (j = 0; j < grid[0].length; j++) {
-				if (grid[i][j] == NOVALUE)
-					emptyCells.add(new Indices(i, j));
-				if (shouldChange[i][j])
-					changeCells.add(new Indices(i, j));
+			setUnhappy(i, flags[i]);
+		}
+	}
+
+	private void checkTouched(byte[] grid, int from, int to) {
+		int k;
+
+		for (k = from; k < to; k++) {
+			flags[k] = isUnsatisfied(grid, touched[k]);
+		}
+	}
+
+	private void setUnhappy(int cell, boolean value) {
+		if (value) {
+			unhappy.add(cell);
+		} else {
+			unhappy.remove(cell);
+		}
+	}
+
+	private boolean isUnsatisfied(byte[] grid, int i) {
+		double agree, disagree;
+
+		if (grid[i] == FIRSTVALUE) {
+			agree = firstCounts[i];
+			disagree = secondCounts[i];
+		} else if (grid[i] == SECONDVALUE) {
+			agree = secondCounts[i];
+			disagree = firstCounts[i];
+		} else {
+			return false;
+		}
+		return ((agree / disagree) <= neededNeighbors);
+	}
+
+	/**
+	 * Moves the count of an agent from the neighbors of one cell to the neighbors of another.
+	 * Every neighborhood is symmetric, so the cells counting a cell are its own neighbors.
+	 */
+	private void moveCounts(int from, int to, int status) {
+		int[] counts = (status == FIRSTVALUE) ? firstCounts : secondCounts;
+
+		touch(from);
+		touch(to);
+		updateNeighbors(from, counts, -1);
+		updateNeighbors(to, counts, 1);
+	}
+
+	private void updateNeighbors(int cell, int[] counts, int delta) {
+		int k, n;
+		int xMax = getStateBuffer().getXMax();
+		int yMax = getStateBuffer().getYMax();
+
+		if (getNeighborhood() != null) {
+			n = getNeighborhood().getNeighbors(cell % xMax, cell / xMax, xMax, yMax, neighbors);
+		} else {
+			n = getGrid().getAllNeighbors(cell % xMax, cell / xMax, xMax, yMax, neighbors);
+		}
+		for (k = 0; k < n; k++) {
+			counts[neighbors[k]] += delta;
+			touch(neighbors[k]);
+		}
+	}
+
+	private void touch(int cell) {
+		if (isTouched[cell]) {
+			return;
+		}
+		if (touchedCount == touched.length) {
+			touched = Arrays.copyOf(touched, 2 * touched.length);
+		}
+		isTouched[cell] = true;
+		touched[touchedCount++] = cell;
+	}
+
+	/**
+	 * Moves the unsatisfied agents in index order, each to an empty cell drawn uniformly
+	 * from the pool. The cell left behind takes the place of the drawn one in the pool.
+	 */
+	private void changeCells(byte[] grid) {
+		int k, i, a, count;
+
+		count = unhappy.size();
+		unhappy.copyTo(movers);
+		Arrays.sort(movers, 0, count);
+
+		for (k = 0; k < count; k++) {
+			if (vacancies.size() == 0) {
+				return;
 			}
+			i = movers[k];
+			a = vacancies.get(getRandom().nextInt(step, i, 0, vacancies.size()));
+
+			grid[a] = grid[i];
+			grid[i] = NOVALUE;
+			vacancies.replace(a, i);
+			moveCounts(i, a, grid[a]);
 		}
+	}
 
-		while (changeCells.size() > 0) {
-			i = changeCells.get(0).getX();
-			j = changeCells.get(0).getY();
+	/**
+	 * Gives the same moves as changeCells() with the work split into parallel bands.
+	 * A move replaces the drawn vacancy with the cell left behind, so the pool keeps its size
+	 * and every draw can be taken up front. The agents drawing the same position form a chain
+	 * in index order: the first takes the vacancy there and each later one takes the cell
+	 * its predecessor left. Sorting the draws by position groups the chains, after which
+	 * every agent has a target no other agent claims and all the writes can run at once.
+	 */
+	private void changeCellsInParallel(byte[] grid) {
+		int k;
+		int count = unhappy.size();
+		int size = vacancies.size();
 
-			rand = (int) Math.random() * (emptyCells.size() - 1);
-			a = emptyCells.get(rand).getX();
-			b = emptyCells.get(rand).getY();
+		if (size == 0) {
+			return;
+		}
+		if (claims == null) {
+			claims = new long[grid.length];
+			targets = new int[grid.length];
+			types = new byte[grid.length];
+		}
+		unhappy.copyTo(movers);
+		Arrays.sort(movers, 0, count);
+
+		inBands(count, 1, (from, to) -> {
+			for (int j = from; j < to; j++) {
+				claims[j] = ((long) getRandom().nextInt(step, movers[j], 0, size) << 32) | j;
+			}
+		});
+		Arrays.sort(claims, 0, count);
+
+		inBands(count, 1, (from, to) -> {
+			for (int p = from; p < to; p++) {
+				int j = (int) claims[p];
+				if ((p > 0) && ((claims[p - 1] >>> 32) == (claims[p] >>> 32))) {
+					targets[j] = movers[(int) claims[p - 1]];
+				} else {
+					targets[j] = vacancies.get((int) (claims[p] >>> 32));
+				}
+				types[j] = grid[movers[j]];
+			}
+		});
+		inBands(count, 1, (from, to) -> {
+			for (int j = from; j < to; j++) {
+				grid[movers[j]] = NOVALUE;
+			}
+		});
+		inBands(count, 1, (from, to) -> {
+			for (int p = from; p < to; p++) {
+				int j = (int) claims[p];
+				grid[targets[j]] = types[j];
+				if ((p == count - 1) || ((claims[p + 1] >>> 32) != (claims[p] >>> 32))) {
+					int position = (int) (claims[p] >>> 32);
+					vacancies.replace(vacancies.get(position), movers[j]);
+				}
+			}
+		});
 
-			grid[a][b] = grid[i][j];
-			grid[i][j] = NOVALUE;
-			emptyCells.remove(rand);
-			emptyCells.add(new Indices(i, j));
-			changeCells.remove(0);
+		// the counts are shared between neighbors, so they are moved on one thread
+		for (k = 0; k < count; k++) {
+			moveCounts(movers[k], targets[k], types[k]);
 		}
 	}
 }
@@ -1,12 +1,7 @@
 package animation;
 
-import java.util.ArrayList;
-
-import cell.Indices;
 import cellSociety.CellSociety;
-import grid.Grid;
-import grid.SquareGrid;
-import page.PageSlime;
+import grid.NeighborTable;
 import page.Parameters;
 
 public class AnimationSlime extends Animation {
@@ -18,7 +13,8 @@ public class AnimationSlime extends Animation {
 	private static double HIGHMULTIPLIER;
 	private static double LOWMULTIPLIER;
 	
-	private int [][] cAMP;
+	private int [] cAMP;
+	private int [] shouldAdd;
 	private boolean firstTime;
 	
 	public AnimationSlime(CellSociety c, Parameters p) {
@@ -26,15 +22,20 @@ public class AnimationSlime extends Animation {
 		firstTime = true;
 	}
 
+	/**
+	 * Slime moves one after another in place, then the cAMP of every cell
+	 * is raised from the same snapshot of the grid.
+	 */
 	@Override
 	public void calculateMove() {
 		HIGHMULTIPLIER = this.getParametersController().getSlimeLevel("upper");
 		LOWMULTIPLIER = this.getParametersController().getSlimeLevel("lower");
-		int [][] grid = getArray("Slime");
+		byte [] grid = getFront();
 		
 		if (firstTime) {
 			firstTime = false;
-			cAMP = new int[grid.length][grid[0].length];
+			cAMP = new int[grid.length];
+			shouldAdd = new int[grid.length];
 			setToZero(cAMP);
 		}
 		
@@ -44,122 +45,103 @@ public class AnimationSlime extends Animation {
 		
 		evaluatecAMPValues(grid);
 		
-		setCells(grid, (PageSlime) getNeededPage("Slime"));
-		
 	}
 	
-	private void changeGrid(int [][] grid) {
-		int i, j, k;
-		ArrayList <Indices> neighbors;
-		Indices highCell = new Indices(-1, -1);
+	private void changeGrid(byte [] grid) {
+		int i, k;
+		NeighborTable table = getImmediateTable();
+		int [] neighbors = table.getNeighbors();
+		int highCell = -1;
 		int highNum;
 		
 		for (i = 0; i < grid.length; i++) {
-			for (j = 0; j < grid[0].length; j++) {
-				if (grid[i][j] == SLIME) {
-					neighbors = getGrid().getImmediateNeighbors(i, j, grid.length, grid[0].length);
-					
-					for (k = 0; k < neighbors.size(); k++) {
-						if (grid[neighbors.get(k).getX()][neighbors.get(k).getY()] == SLIME) {
-							neighbors.remove(k);
-							k--;
-						}
-					}
-					
-					
-					if (neighbors.size() > 0) {
-						highNum = -1;
-						for (k = 0; k < neighbors.size(); k++) {
-							if (cAMP[neighbors.get(k).getX()][neighbors.get(k).getY()] > highNum) {
-								highNum = cAMP[neighbors.get(k).getX()][neighbors.get(k).getY()];
-								highCell = new Indices(neighbors.get(k).getX(), neighbors.get(k).getY());
-							}
-						}
-						
-						grid[i][j] = LOWCAMP;
-						grid[highCell.getX()][highCell.getY()] = SLIME;
+			if (grid[i] == SLIME) {
+				highNum = -1;
+				
+				for (k = table.getStart(i); k < table.getEnd(i); k++) {
+					if ((grid[neighbors[k]] != SLIME) && (cAMP[neighbors[k]] > highNum)) {
+						highNum = cAMP[neighbors[k]];
+						highCell = neighbors[k];
 					}
 				}
+				
+				if (highNum >= 0) {
+					grid[i] = (byte) LOWCAMP;
+					grid[highCell] = (byte) SLIME;
+				}
 			}
 		}
 	}
 	
-	private void calculatecAMP(int [][] grid) {
-		int i, j, k;
-		ArrayList <Indices> neighbors;
-		int [][] shouldAdd = new int[cAMP.length][cAMP[0].length];
-		
-		setToZero(shouldAdd);
+	/**
+	 * Every cell gathers what its neighbors add to it, so bands of cells can run in parallel:
+	 * one from each slime neighbor, one from each neighbor with more cAMP, and one if it is slime.
+	 * The neighbors of the grids are symmetric, so this is what the neighbors would spread to it.
+	 */
+	private void calculatecAMP(byte [] grid) {
+		NeighborTable table = getImmediateTable();
+		int [] neighbors = table.getNeighbors();
 		
-		for (i = 0; i < grid.length; i++) {
-			for (j = 0; j < grid[0].length; j++) {
-				if (grid[i][j] == SLIME) {
-					
-					shouldAdd[i][j] += 1;
-					neighbors = getGrid().getImmediateNeighbors(i, j, grid.length, grid[0].length);
-					
-					for (k = 0; k < neighbors.size(); k++) {
-						shouldAdd[neighbors.get(k).getX()][neighbors.get(k).getY()] += 1;
-					}
-				}
-				else {
-					neighbors = getGrid().getImmediateNeighbors(i, j, grid.length, grid[0].length);
-					for (k = 0; k < neighbors.size(); k++) {
-						if (cAMP[i][j] > cAMP[neighbors.get(k).getX()][neighbors.get(k).getY()]) {
-							shouldAdd[neighbors.get(k).getX()][neighbors.get(k).getY()] += 1;
-						}
+		inBands(grid.length, 1, (from, to) -> {
+			int i, k, j;
+			for (i = from; i < to; i++) {
+				shouldAdd[i] = (grid[i] == SLIME) ? 1 : 0;
+				for (k = table.getStart(i); k < table.getEnd(i); k++) {
+					j = neighbors[k];
+					if ((grid[j] == SLIME) || (cAMP[j] > cAMP[i])) {
+						shouldAdd[i] += 1;
 					}
 				}
 			}
-		}
+		});
 		
-		for (i = 0; i < grid.length; i++) {
-			for (j = 0; j < grid[0].length; j++) {
-				cAMP[i][j] += shouldAdd[i][j];
+		inBands(grid.length, 1, (from, to) -> {
+			for (int i = from; i < to; i++) {
+				cAMP[i] += shouldAdd[i];
 			}
-		}
+		});
 		
 	}
 	
-	private void evaluatecAMPValues(int [][] grid) {
-		int i, j;
+	private void evaluatecAMPValues(byte [] grid) {
+		int i;
 		double highVal, lowVal, average;
 		double total = 0;
 		
 		
 		for (i = 0; i < cAMP.length; i++) {
-			for (j = 0; j < cAMP[0].length; j++) {
-				total += cAMP[i][j];
-			}
+			total += cAMP[i];
 		}
 		
-		average = total / (cAMP.length * cAMP[0].length);
+		average = total / cAMP.length;
 		highVal = average * HIGHMULTIPLIER;
 		lowVal = average * LOWMULTIPLIER;
 		
-		for (i = 0; i < cAMP.length; i++) {
-			for (j = 0; j < cAMP.length; j++) {
-				if (grid[i][j] != SLIME) {
-					if (cAMP[i][j] > highVal) {
-						grid[i][j] = HIGHCAMP;
-					}
-					else if (cAMP[i][j] < lowVal) {
-						grid[i][j] = LOWCAMP;
-					}
-					else {
-						grid[i][j] = MEDIUMCAMP;
-					}
+		inBands(cAMP.length, 1, (from, to) -> classify(grid, from, to, highVal, lowVal));
+	}
+	
+	private void classify(byte [] grid, int from, int to, double highVal, double lowVal) {
+		int i;
+		
+		for (i = from; i < to; i++) {
+			if (grid[i] != SLIME) {
+				if (cAMP[i] > highVal) {
+					grid[i] = (byte) HIGHCAMP;
+				}
+				else if (cAMP[i] < lowVal) {
+					grid[i] = (byte) LOWCAMP;
+				}
+				else {
+					grid[i] = (byte) MEDIUMCAMP;
 				}
 			}
 		}
 	}
 	
-	private void setToZero(int [][] numbers) {
-		int i, j;
+	private void setToZero(int [] numbers) {
+		int i;
 		for (i = 0; i < numbers.length; i++) {
-			for (j = 0; j < numbers[0].length; j++) {
-				numbers[i][j] = 0;
-			}
+			numbers[i] = 0;
 		}
 	}
 }
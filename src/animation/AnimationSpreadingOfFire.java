@@ -1,20 +1,29 @@
 package animation;
-import java.util.ArrayList;
-
-import cell.Indices;
 import cellSociety.CellSociety;
+import grid.ActivityMask;
 import grid.Grid;
-import grid.SquareGrid;
-import page.Page;
+import grid.StateBuffer;
 import page.Parameters;
-import page.UIsetup;
 
 public class AnimationSpreadingOfFire extends Animation {
-	private final static int BURNINGVALUE = 2;
-	private final static int UNBURNEDVALUE = 1;
-	private final static int BURNEDVALUE = 0;
+	private final static int BURNINGVALUE = FireFront.BURNING;
+	private final static int UNBURNEDVALUE = FireFront.UNBURNED;
+	private final static int BURNEDVALUE = FireFront.BURNED;
+	// the front is stepped while it holds less than this share of the cells, the whole grid otherwise
+	private final static int DENSE_FRACTION = 16;
 	
 	private double probCatch;
+	private int [] counts;
+	// chance to catch fire with k burning neighbors, each of them trying on its own
+	private double [] catchChance = new double[Grid.MAX_NEIGHBORS + 1];
+	private FireFront front;
+	private long step;
+	private boolean steppedFront;
+	private ClusterLabeler scarLabeler;
+	// made once, so a step on one thread allocates nothing
+	private final FireFront.Ignition ignition = this::figureShouldChange;
+	private final RowRule rowRule = this::nextRow;
+	private final ParallelBands.Band changeBand = this::checkChange;
 	
 	
 	
@@ -22,68 +31,133 @@ public class AnimationSpreadingOfFire extends Animation {
 		super(c, p);
 	}
 	
+	/**
+	 * The front and stepByRows() work on any storage, the dense step of other shapes needs the heap
+	 */
+	@Override
+	protected String chooseStorage(String configured) {
+		return canStepByRows() ? configured : StateBuffer.HEAP;
+	}
+	
 	public void calculateMove () {
 		
+		step++;
 		probCatch = this.getParametersController().getProb();
+		for (int k = 0; k < catchChance.length; k++) {
+			catchChance[k] = 1 - Math.pow(1 - probCatch, k);
+		}
 		
-		boolean [][] shouldChange;
-		int [][] grid= getArray("Fire");
-		shouldChange = new boolean[grid.length][grid[0].length];
+		if (FireFront.supports(getStateBuffer())) {
+			if (front == null) {
+				front = new FireFront(getGrid(), getStateBuffer().getXMax(), getStateBuffer().getYMax());
+			}
+			if (front.isStale(getStateBuffer())) {
+				front.load(getStateBuffer());
+			}
+			steppedFront = (long) front.size() * DENSE_FRACTION < getStateBuffer().size();
+			if (steppedFront) {
+				front.step(getStateBuffer(), ignition);
+				markAllActive();
+				return;
+			}
+			// most cells are near the fire, so scanning the grid is cheaper; the front is found again after
+			front.invalidate();
+		}
 		
-		checkChange(shouldChange, grid);
+		if (canStepByRows()) {
+			stepByRows(BURNINGVALUE, false, rowRule);
+			return;
+		}
+		
+		byte [] grid = getFront();
+		if (counts == null) {
+			counts = new int[grid.length];
+		}
+		countNeighbors(BURNINGVALUE, false, counts);
 		
-		changegrid(shouldChange, grid);
+		inBands(grid.length, 1, changeBand);
 		
-		setCells(grid, (UIsetup)getNeededPage("Fire"));
+		swapBuffers();
 	}
 	
 	
 	
-	private void checkChange(boolean [][] shouldChange, int [][] grid) {
-		int i, j, k;
-		ArrayList <Indices> neighbors;
-		
-		for (i = 0; i < grid.length; i++) {
-			for (j = 0; j < grid[0].length; j++) {
-				if (!shouldChange[i][j])
-					shouldChange[i][j] = (grid[i][j] == BURNINGVALUE);
-				
-				if (grid[i][j] == BURNINGVALUE) {
-					neighbors = getGrid().getImmediateNeighbors(i,j,grid.length, grid[0].length);
-					
-					for (k = 0; k < neighbors.size(); k++) {
-						shouldChange[neighbors.get(k).getX()][neighbors.get(k).getY()] = 
-								figureShouldChange(neighbors.get(k).getX(),neighbors.get(k).getY(),shouldChange,grid);
-					}
-					
-				}
-				
-			}
+	/**
+	 * The front knows which tiles it changed, the dense steps leave it to the parent class
+	 */
+	@Override
+	public ActivityMask getChangedTiles () {
+		if (steppedFront) {
+			return front.getChangedTiles();
 		}
+		return super.getChangedTiles();
+	}
+	
+	/**
+	 * The fire is over once nothing burns
+	 */
+	@Override
+	public boolean isFinished () {
+		return steppedFront && front.isEmpty();
 	}
 	
-	private boolean figureShouldChange(int i, int j, boolean [][] shouldChange, int [][] grid) {
-		if (!shouldChange[i][j]) {
-			return ((grid[i][j] == UNBURNEDVALUE) &&
-				(Math.random() <= probCatch));
+	/**
+	 * Labels the connected burned cells, for the statistics shown once the fire is over
+	 * @return the burn scars
+	 */
+	public Clusters getBurnScars () {
+		if (scarLabeler == null) {
+			scarLabeler = new ClusterLabeler(getGrid(), this.getParametersController().getThreads());
 		}
-		return true;
+		return scarLabeler.label(getStateBuffer(), BURNEDVALUE);
 	}
 	
-	private void changegrid(boolean [][] shouldChange, int [][] grid) {
-		int i, j;
+	/**
+	 * Also stops the threads labeling the burn scars
+	 */
+	@Override
+	public void close () {
+		super.close();
+		if (scarLabeler != null) {
+			scarLabeler.close();
+			scarLabeler = null;
+		}
+	}
+	
+	private void checkChange(int from, int to) {
+		int i;
+		byte [] grid = getFront();
+		byte [] next = getBack();
 		
-		for (i = 0; i < grid.length; i++) {
-			for (j = 0; j < grid.length; j++) {
-				if (shouldChange[i][j]) {
-					if (grid[i][j] == BURNINGVALUE) {
-						grid[i][j] = BURNEDVALUE;
-					}
-					else {
-						grid[i][j] = BURNINGVALUE;
-					}
-				}
-			}
+		for (i = from; i < to; i++) {
+			next[i] = nextStatus(i, grid[i], counts[i]);
+		}
+	}
+	
+	private void nextRow(byte [] current, int offset, int [] burning, byte [] next, int y, int from, int to) {
+		int x;
+		long row = getStateBuffer().index(0, y);
+		
+		for (x = from; x < to; x++) {
+			next[x] = nextStatus(row + x, current[offset + x], burning[x]);
+		}
+	}
+	
+	private byte nextStatus(long cell, byte status, int burningNeighbors) {
+		if (status == BURNINGVALUE) {
+			return BURNEDVALUE;
 		}
+		else if ((status == UNBURNEDVALUE) && figureShouldChange(cell, burningNeighbors)) {
+			return BURNINGVALUE;
+		}
+		return status;
+	}
+	
+	/**
+	 * The draw of a cell depends only on the seed, the step and the cell,
+	 * so the front and the dense steps, on any number of threads, burn the same cells
+	 */
+	private boolean figureShouldChange(long cell, int burningNeighbors) {
+		return (burningNeighbors > 0) && (getRandom().nextDouble(step, cell, 0) < catchChance[burningNeighbors]);
 	}
 }
@@ -0,0 +1,91 @@
+package animation;
+
+import java.util.Arrays;
+
+/**
+ * A set of cells with constant-time add, remove and lookup by position, for picking
+ * a uniformly random member. Each cell remembers its position in a dense array,
+ * and a removal moves the last member into the hole it leaves.
+ */
+class CellPool {
+
+	private final int [] cells;
+	private final int [] positions;
+	private int size;
+
+	/**
+	 * Constructor of the CellPool class.
+	 * @param capacity the number of cells of the grid
+	 */
+	CellPool(int capacity) {
+		cells = new int[capacity];
+		positions = new int[capacity];
+		Arrays.fill(positions, -1);
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @param k a position between 0 and size() - 1
+	 * @return the cell at the position
+	 */
+	int get(int k) {
+		return cells[k];
+	}
+
+	boolean contains(int cell) {
+		return positions[cell] >= 0;
+	}
+
+	void add(int cell) {
+		if (positions[cell] >= 0) {
+			return;
+		}
+		positions[cell] = size;
+		cells[size++] = cell;
+	}
+
+	void remove(int cell) {
+		int k = positions[cell];
+
+		if (k < 0) {
+			return;
+		}
+		size--;
+		cells[k] = cells[size];
+		positions[cells[k]] = k;
+		positions[cell] = -1;
+	}
+
+	/**
+	 * Puts a cell in the position of a member, which leaves the pool
+	 * @param member the cell in the pool
+	 * @param cell the cell outside the pool that takes its position
+	 */
+	void replace(int member, int cell) {
+		int k = positions[member];
+
+		positions[member] = -1;
+		positions[cell] = k;
+		cells[k] = cell;
+	}
+
+	/**
+	 * Copies the members, in no particular order
+	 * @param buffer the array the members are written into, at least size() long
+	 */
+	void copyTo(int [] buffer) {
+		System.arraycopy(cells, 0, buffer, 0, size);
+	}
+
+	void clear() {
+		int k;
+
+		for (k = 0; k < size; k++) {
+			positions[cells[k]] = -1;
+		}
+		size = 0;
+	}
+}
@@ -0,0 +1,374 @@
+package animation;
+
+import java.util.Arrays;
+
+import grid.Grid;
+import grid.SquareGrid;
+import grid.StateBuffer;
+
+/**
+ * Finds the connected clusters of cells holding a status with union-find, where two cells
+ * are connected when they are immediate neighbors of the grid.
+ * The rows are split into bands that are labeled in parallel, each only joining cells inside
+ * the band, then the edges crossing the boundaries between bands are joined on one thread.
+ * Every cell points at a lower cell of its cluster and every cluster is rooted at its lowest cell,
+ * so the clusters are numbered in one pass in the order of their first cell, whatever the bands.
+ * Immediate neighbors must lie within one row and column of the cell, as they do on every grid here.
+ * On a toroidal grid the edges across the seams are left out of the bands, and joined afterwards
+ * between the numbered clusters with the number of times each crosses a seam, so a cluster that
+ * joins itself across a seam with a different count wraps around the grid.
+ * The grid must then be at least 3 cells wide and high, so a neighbor across a seam is told apart.
+ */
+public class ClusterLabeler {
+
+	private static final int NONE = -1;
+
+	private final Grid grid;
+	private final ParallelBands bands;
+	private final int [] neighbors = new int[Grid.MAX_NEIGHBORS]; // for the joins between bands, on one thread
+	private int [] parent;
+	// the joins across the seams of a toroidal grid, between numbered clusters
+	private int [] root;
+	private int [] windX;
+	private int [] windY;
+	private int foundX;
+	private int foundY;
+	private boolean wrapsRows;
+	private boolean wrapsColumns;
+
+	/**
+	 * Constructor of the ClusterLabeler class.
+	 * @param grid the shape giving the neighbors of the cells
+	 * @param threads the number of threads labeling bands, 1 to label on the calling thread
+	 */
+	public ClusterLabeler(Grid grid, int threads) {
+		this.grid = grid;
+		bands = (threads > 1) ? new ParallelBands(threads) : null;
+	}
+
+	/**
+	 * Stops the threads labeling bands, if there are any
+	 */
+	public void close() {
+		if (bands != null) {
+			bands.close();
+		}
+	}
+
+	/**
+	 * Labels the clusters of a status
+	 * @param states the statuses of the cells, at most Integer.MAX_VALUE of them,
+	 * since every cell keeps an int parent on the heap
+	 * @param status the status of the cells to join
+	 * @return the clusters
+	 */
+	public Clusters label(StateBuffer states, int status) {
+		int xMax = states.getXMax();
+		int yMax = states.getYMax();
+		int size;
+		int band = (bands == null) ? yMax : Math.max(1, (yMax + 4 * bands.getThreads() - 1) / (4 * bands.getThreads()));
+		int bandCount = (yMax + band - 1) / band;
+		int b;
+
+		if (states.size() > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Clusters can only be labeled on grids of at most "
+					+ Integer.MAX_VALUE + " cells, not " + states.size());
+		}
+		size = (int) states.size();
+		parent = new int[size];
+		if (bands == null) {
+			labelBand(states, status, 0, yMax);
+		}
+		else {
+			bands.run(bandCount, 1, (from, to) -> {
+				for (int k = from; k < to; k++) {
+					labelBand(states, status, k * band, Math.min((k + 1) * band, yMax));
+				}
+			});
+		}
+		// the edges between bands, and between the last and first row of a toroidal grid
+		for (b = 0; b < bandCount; b++) {
+			joinOutside(b * band, Math.min((b + 1) * band, yMax), xMax, yMax);
+		}
+		return relabel(xMax, yMax);
+	}
+
+	private void labelBand(StateBuffer states, int status, int yFrom, int yTo) {
+		int x, y, i, k, n;
+		int xMax = states.getXMax();
+		byte [] row = new byte[xMax];
+		int [] buffer = new int[Grid.MAX_NEIGHBORS];
+		boolean square = grid instanceof SquareGrid;
+
+		for (y = yFrom; y < yTo; y++) {
+			states.readRow(y, row, 0);
+			for (x = 0; x < xMax; x++) {
+				i = y * xMax + x;
+				if (row[x] != status) {
+					parent[i] = NONE;
+					continue;
+				}
+				parent[i] = i;
+				if (square) {
+					// the left and upper neighbors
+					if ((x > 0) && (parent[i - 1] != NONE)) {
+						parent[i] = i - 1;
+					}
+					if ((y > yFrom) && (parent[i - xMax] != NONE)) {
+						union(i - xMax, i);
+					}
+					continue;
+				}
+				n = grid.getImmediateNeighbors(x, y, xMax, states.getYMax(), buffer);
+				for (k = 0; k < n; k++) {
+					int j = buffer[k];
+					if ((j < i) && (j >= yFrom * xMax) && (parent[j] != NONE)
+							&& (winding(j % xMax - x, xMax) == 0) && (winding(j / xMax - y, states.getYMax()) == 0)) {
+						union(j, i);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Joins the cells of the first and last rows of a band with their neighbors in the bands
+	 * next to it, leaving the edges across a seam to joinSeams()
+	 */
+	private void joinOutside(int yFrom, int yTo, int xMax, int yMax) {
+		int x, k, n;
+		int [] rows = {yFrom, yTo - 1};
+
+		for (int y : rows) {
+			for (x = 0; x < xMax; x++) {
+				if (parent[y * xMax + x] == NONE) {
+					continue;
+				}
+				n = grid.getImmediateNeighbors(x, y, xMax, yMax, neighbors);
+				for (k = 0; k < n; k++) {
+					int j = neighbors[k];
+					if (((j < yFrom * xMax) || (j >= yTo * xMax)) && (parent[j] != NONE)
+							&& (winding(j % xMax - x, xMax) == 0) && (winding(j / xMax - y, yMax) == 0)) {
+						union(j, y * xMax + x);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param step the difference of a coordinate between a cell and its neighbor
+	 * @param length the length of the grid along the coordinate
+	 * @return -1 or 1 when the step from the cell to the neighbor crosses a seam backward or forward, else 0
+	 */
+	private static int winding(int step, int length) {
+		if (step > 1) {
+			return -1;
+		}
+		return (step < -1) ? 1 : 0;
+	}
+
+	/**
+	 * Turns roots into cluster numbers in the order of their first cell, counting sizes,
+	 * and checks which clusters touch each edge of the grid, or wrap around a toroidal one
+	 */
+	private Clusters relabel(int xMax, int yMax) {
+		int i, x, y, p;
+		int count = 0;
+		int [] sizes = new int[16];
+
+		for (i = 0; i < parent.length; i++) {
+			p = parent[i];
+			if (p == NONE) {
+				continue;
+			}
+			// every cell points at a lower cell of its cluster, which already holds the number, or at itself
+			if (p == i) {
+				if (count == sizes.length) {
+					sizes = Arrays.copyOf(sizes, count * 2);
+				}
+				parent[i] = count++;
+			}
+			else {
+				parent[i] = parent[p];
+			}
+			sizes[parent[i]]++;
+		}
+		if (grid.isToroidal()) {
+			return joinSeams(xMax, yMax, count, sizes);
+		}
+
+		boolean [] first = new boolean[count];
+		boolean [] last = new boolean[count];
+		boolean spansRows = false;
+		boolean spansColumns = false;
+		for (x = 0; x < xMax; x++) {
+			mark(first, parent[x]);
+			mark(last, parent[(yMax - 1) * xMax + x]);
+		}
+		spansRows = shareAny(first, last);
+		Arrays.fill(first, false);
+		Arrays.fill(last, false);
+		for (y = 0; y < yMax; y++) {
+			mark(first, parent[y * xMax]);
+			mark(last, parent[y * xMax + xMax - 1]);
+		}
+		spansColumns = shareAny(first, last);
+		Clusters clusters = new Clusters(parent, Arrays.copyOf(sizes, count), spansRows, spansColumns);
+		parent = null;
+		return clusters;
+	}
+
+	/**
+	 * Joins the numbered clusters across the seams of a toroidal grid.
+	 * Each cluster keeps the number of seams crossed, in x and y, on the way from its root,
+	 * and a cluster joined to itself with another count wraps around the grid along that coordinate.
+	 */
+	private Clusters joinSeams(int xMax, int yMax, int count, int [] sizes) {
+		int i, x, y, k, a, c;
+		int merged = 0;
+
+		root = new int[count];
+		windX = new int[count];
+		windY = new int[count];
+		wrapsRows = false;
+		wrapsColumns = false;
+		for (k = 0; k < count; k++) {
+			root[k] = k;
+		}
+		// only the cells on the edges have neighbors across a seam
+		for (x = 0; x < xMax; x++) {
+			joinAcross(x, 0, xMax, yMax);
+			joinAcross(x, yMax - 1, xMax, yMax);
+		}
+		for (y = 1; y < yMax - 1; y++) {
+			joinAcross(0, y, xMax, yMax);
+			joinAcross(xMax - 1, y, xMax, yMax);
+		}
+
+		// every root is the lowest cluster it holds, so the clusters stay in the order of their first cell
+		int [] number = new int[count];
+		int [] total = new int[count];
+		for (c = 0; c < count; c++) {
+			a = find(c);
+			number[c] = (a == c) ? merged++ : number[a];
+			total[number[c]] += sizes[c];
+		}
+		for (i = 0; i < parent.length; i++) {
+			if (parent[i] != NONE) {
+				parent[i] = number[parent[i]];
+			}
+		}
+		Clusters clusters = new Clusters(parent, Arrays.copyOf(total, merged), wrapsRows, wrapsColumns);
+		parent = null;
+		root = null;
+		windX = null;
+		windY = null;
+		return clusters;
+	}
+
+	private void joinAcross(int x, int y, int xMax, int yMax) {
+		int k, n, j, wx, wy, a, b, ax, ay;
+		int i = y * xMax + x;
+
+		if (parent[i] == NONE) {
+			return;
+		}
+		n = grid.getImmediateNeighbors(x, y, xMax, yMax, neighbors);
+		for (k = 0; k < n; k++) {
+			j = neighbors[k];
+			wx = winding(j % xMax - x, xMax);
+			wy = winding(j / xMax - y, yMax);
+			if ((parent[j] == NONE) || ((wx == 0) && (wy == 0))) {
+				continue;
+			}
+			a = find(parent[i]);
+			ax = foundX;
+			ay = foundY;
+			b = find(parent[j]);
+			// the offset of the frame of b from the frame of a, by the path through this edge
+			wx += ax - foundX;
+			wy += ay - foundY;
+			if (a == b) {
+				wrapsColumns |= (wx != 0);
+				wrapsRows |= (wy != 0);
+			}
+			else if (a < b) {
+				root[b] = a;
+				windX[b] = wx;
+				windY[b] = wy;
+			}
+			else {
+				root[a] = b;
+				windX[a] = -wx;
+				windY[a] = -wy;
+			}
+		}
+	}
+
+	/**
+	 * Finds the root of a cluster in joinSeams(), leaving in foundX and foundY the seams
+	 * crossed from the root to it, and pointing the cluster and those above it at the root
+	 */
+	private int find(int c) {
+		int r = c;
+		int wx = 0;
+		int wy = 0;
+		int next, dx, dy;
+
+		while (root[r] != r) {
+			wx += windX[r];
+			wy += windY[r];
+			r = root[r];
+		}
+		foundX = wx;
+		foundY = wy;
+		while (c != r) {
+			next = root[c];
+			dx = windX[c];
+			dy = windY[c];
+			root[c] = r;
+			windX[c] = wx;
+			windY[c] = wy;
+			wx -= dx;
+			wy -= dy;
+			c = next;
+		}
+		return r;
+	}
+
+	private static void mark(boolean [] touched, int label) {
+		if (label != NONE) {
+			touched[label] = true;
+		}
+	}
+
+	private static boolean shareAny(boolean [] first, boolean [] last) {
+		for (int k = 0; k < first.length; k++) {
+			if (first[k] && last[k]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Joins two clusters under the lower of their roots, halving the paths on the way
+	 */
+	private void union(int a, int b) {
+		while (parent[a] != a) {
+			parent[a] = parent[parent[a]];
+			a = parent[a];
+		}
+		while (parent[b] != b) {
+			parent[b] = parent[parent[b]];
+			b = parent[b];
+		}
+		if (a < b) {
+			parent[b] = a;
+		}
+		else if (b < a) {
+			parent[a] = b;
+		}
+	}
+}
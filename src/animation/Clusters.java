@@ -0,0 +1,94 @@
+package animation;
+
+import java.util.Arrays;
+
+/**
+ * The connected clusters of cells holding one status, found by ClusterLabeler:
+ * their sizes and whether any of them spans the grid from one edge to the opposite one,
+ * or on a toroidal grid, where opposite edges touch, wraps all the way around it.
+ */
+public class Clusters {
+
+	private final int [] labels;
+	private final int [] sizes;
+	private final boolean spansRows;
+	private final boolean spansColumns;
+
+	Clusters(int [] labels, int [] sizes, boolean spansRows, boolean spansColumns) {
+		this.labels = labels;
+		this.sizes = sizes;
+		this.spansRows = spansRows;
+		this.spansColumns = spansColumns;
+	}
+
+	/**
+	 * @return the number of clusters
+	 */
+	public int getCount() {
+		return sizes.length;
+	}
+
+	/**
+	 * @param label a cluster, between 0 and getCount() - 1, numbered in the order of their first cell
+	 * @return the number of cells in the cluster
+	 */
+	public int getSize(int label) {
+		return sizes[label];
+	}
+
+	/**
+	 * @return the size of the largest cluster, 0 if there is none
+	 */
+	public int getLargest() {
+		int largest = 0;
+		for (int size : sizes) {
+			largest = Math.max(largest, size);
+		}
+		return largest;
+	}
+
+	/**
+	 * @return the sizes of all clusters, largest first
+	 */
+	public int [] getSizesDescending() {
+		int [] sorted = sizes.clone();
+		Arrays.sort(sorted);
+		for (int i = 0, j = sorted.length - 1; i < j; i++, j--) {
+			int temp = sorted[i];
+			sorted[i] = sorted[j];
+			sorted[j] = temp;
+		}
+		return sorted;
+	}
+
+	/**
+	 * @param cell the linear index of a cell
+	 * @return the cluster of the cell, or -1 if it does not hold the status
+	 */
+	public int getLabel(int cell) {
+		return labels[cell];
+	}
+
+	/**
+	 * @return whether a cluster touches both the first and the last row,
+	 * or on a toroidal grid wraps around it from top to bottom
+	 */
+	public boolean spansRows() {
+		return spansRows;
+	}
+
+	/**
+	 * @return whether a cluster touches both the first and the last column,
+	 * or on a toroidal grid wraps around it from left to right
+	 */
+	public boolean spansColumns() {
+		return spansColumns;
+	}
+
+	/**
+	 * @return whether a cluster spans the grid in either direction, so the status percolates
+	 */
+	public boolean percolates() {
+		return spansRows || spansColumns;
+	}
+}
@@ -0,0 +1,218 @@
+package animation;
+
+import java.util.Arrays;
+
+import grid.ActivityMask;
+import grid.StateBuffer;
+import util.LongIntHashMap;
+
+/**
+ * Detects when a simulation repeats itself, with a 64-bit Zobrist hash of the grid:
+ * the XOR of a random key for every cell and its status, with the keys drawn from a mix
+ * of the cell index and status instead of a table.
+ * The hash is kept per tile of ActivityMask, so after a step only the tiles that changed are rehashed.
+ * A hash seen again within the history gives a candidate period p; the grid is then copied
+ * row by row, and p steps later the tiles that changed in between are compared cell by cell,
+ * so a collision of hashes is never reported.
+ * Setting cells, which counts as an edit of the buffer, starts the history over.
+ */
+public class CycleDetector {
+
+	public static final int HISTORY = 256;
+
+	private final StateBuffer states;
+	private final int tilesX;
+	private final int tilesY;
+	private final long [] tileHash;
+	private final long [] recent = new long[HISTORY];
+	private final LongIntHashMap seen = new LongIntHashMap(HISTORY);
+	private final byte [] row;
+	private long hash;
+	private int edits = -1;
+	private int lastStep = -1;
+	private int historyStart;
+	private byte [][] snapshot;
+	private boolean pending;
+	private final boolean [] touched;
+	private boolean touchedAll;
+	private int snapshotStep;
+	private int snapshotPeriod;
+
+	/**
+	 * Constructor of the CycleDetector class.
+	 * @param states the statuses to watch
+	 */
+	public CycleDetector(StateBuffer states) {
+		this.states = states;
+		tilesX = (states.getXMax() + ActivityMask.TILE - 1) >> ActivityMask.SHIFT;
+		tilesY = (states.getYMax() + ActivityMask.TILE - 1) >> ActivityMask.SHIFT;
+		tileHash = new long[tilesX * tilesY];
+		touched = new boolean[tilesX * tilesY];
+		row = new byte[states.getXMax()];
+	}
+
+	/**
+	 * Records the grid after a step
+	 * @param step the number of the step just taken; a gap since the last one clears the history
+	 * @param changed the tiles changed by the step, or null to rehash every tile
+	 * @return the confirmed period of a cycle, or 0 if there is none yet
+	 */
+	public int update(int step, ActivityMask changed) {
+		if ((step != lastStep + 1) || (states.getEdits() != edits)) {
+			// steps were skipped or cells were set, so the old hashes and a pending snapshot
+			// are not part of the run any more, and cells outside the changed tiles may differ
+			seen.clear();
+			pending = false;
+			historyStart = step;
+			changed = null;
+		}
+		lastStep = step;
+		edits = states.getEdits();
+		rehash(changed);
+		if (pending) {
+			touch(changed);
+		}
+
+		if (pending && (step == snapshotStep + snapshotPeriod)) {
+			int period = matchesSnapshot() ? snapshotPeriod : 0;
+			pending = false;
+			if (period > 0) {
+				return period;
+			}
+		}
+		int before = seen.get(hash, -1);
+		if ((before >= 0) && (step - before <= HISTORY) && !pending) {
+			takeSnapshot(step, step - before);
+		}
+		if ((step % HISTORY == 0) && (seen.size() > HISTORY)) {
+			// the map cannot remove, so it is rebuilt from the ring to keep it bounded
+			seen.clear();
+			for (int s = Math.max(historyStart, step - HISTORY + 1); s < step; s++) {
+				seen.put(recent[s % HISTORY], s);
+			}
+		}
+		recent[step % HISTORY] = hash;
+		seen.put(hash, step);
+		return 0;
+	}
+
+	/**
+	 * @return the current hash of the grid
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * @param index the linear index of a cell
+	 * @param status the status of the cell
+	 * @return the Zobrist key of the cell holding the status, 0 for status 0
+	 */
+	public static long key(long index, int status) {
+		if (status == 0) {
+			return 0;
+		}
+		long z = (index << 8 | (status & 0xff)) + 0x9e3779b97f4a7c15L;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	private void rehash(ActivityMask changed) {
+		int tx, ty, x, y, from, to;
+
+		for (ty = 0; ty < tilesY; ty++) {
+			boolean any = false;
+			for (tx = 0; tx < tilesX; tx++) {
+				if ((changed == null) || changed.isChanged(tx, ty)) {
+					hash ^= tileHash[ty * tilesX + tx];
+					tileHash[ty * tilesX + tx] = 0;
+					any = true;
+				}
+			}
+			if (!any) {
+				continue;
+			}
+			for (y = ty << ActivityMask.SHIFT; y < Math.min((ty + 1) << ActivityMask.SHIFT, states.getYMax()); y++) {
+				states.readRow(y, row, 0);
+				for (tx = 0; tx < tilesX; tx++) {
+					if ((changed != null) && !changed.isChanged(tx, ty)) {
+						continue;
+					}
+					from = tx << ActivityMask.SHIFT;
+					to = Math.min(from + ActivityMask.TILE, states.getXMax());
+					long h = 0;
+					for (x = from; x < to; x++) {
+						h ^= key(states.index(x, y), row[x]);
+					}
+					tileHash[ty * tilesX + tx] ^= h;
+				}
+			}
+			for (tx = 0; tx < tilesX; tx++) {
+				if ((changed == null) || changed.isChanged(tx, ty)) {
+					hash ^= tileHash[ty * tilesX + tx];
+				}
+			}
+		}
+	}
+
+	private void touch(ActivityMask changed) {
+		int t;
+
+		if (changed == null) {
+			touchedAll = true;
+			return;
+		}
+		for (t = 0; t < touched.length; t++) {
+			touched[t] |= changed.isChanged(t % tilesX, t / tilesX);
+		}
+	}
+
+	private void takeSnapshot(int step, int period) {
+		int y;
+
+		if (snapshot == null) {
+			snapshot = new byte[states.getYMax()][states.getXMax()];
+		}
+		for (y = 0; y < states.getYMax(); y++) {
+			states.readRow(y, snapshot[y], 0);
+		}
+		Arrays.fill(touched, false);
+		touchedAll = false;
+		pending = true;
+		snapshotStep = step;
+		snapshotPeriod = period;
+	}
+
+	/**
+	 * Compares the tiles that changed since the snapshot, the others still hold its statuses
+	 */
+	private boolean matchesSnapshot() {
+		int x, y, tx, from, to;
+
+		for (y = 0; y < states.getYMax(); y++) {
+			int ty = y >> ActivityMask.SHIFT;
+			boolean any = touchedAll;
+			for (tx = 0; (tx < tilesX) && !any; tx++) {
+				any = touched[ty * tilesX + tx];
+			}
+			if (!any) {
+				continue;
+			}
+			states.readRow(y, row, 0);
+			for (tx = 0; tx < tilesX; tx++) {
+				if (!touchedAll && !touched[ty * tilesX + tx]) {
+					continue;
+				}
+				from = tx << ActivityMask.SHIFT;
+				to = Math.min(from + ActivityMask.TILE, states.getXMax());
+				for (x = from; x < to; x++) {
+					if (row[x] != snapshot[y][x]) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+}
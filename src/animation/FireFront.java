@@ -0,0 +1,186 @@
+package animation;
+
+import grid.ActivityMask;
+import grid.Grid;
+import grid.StateBuffer;
+import util.LongIntHashMap;
+
+/**
+ * Steps a fire by its front: the list of burning cells, and the unburned cells next to them.
+ * Only those cells can change, so a step costs time in the size of the front, not of the grid.
+ * Cells set outside the steps are found by scanning the grid once before the next step.
+ * The steps write the current statuses in place, without counting edits, and report the changed tiles.
+ * Cells are linear indices (y * xMax + x) as ints, so grids of more cells are stepped densely.
+ */
+public class FireFront {
+
+	public static final int BURNING = 2;
+	public static final int UNBURNED = 1;
+	public static final int BURNED = 0;
+
+	private final Grid grid;
+	private final int xMax;
+	private final int yMax;
+	private final ActivityMask changed;
+	private final int [] neighbors = new int[Grid.MAX_NEIGHBORS];
+	private final byte [] row;
+	// burning neighbors of each unburned cell next to the front, in the order they were found
+	private final LongIntHashMap candidates = new LongIntHashMap();
+	private int [] candidateList = new int[16];
+	private int candidateCount;
+	private int [] burning = new int[16];
+	private int burningCount;
+	private int [] next = new int[16];
+	private int nextCount;
+	private int edits = -1;
+
+	/**
+	 * Decides whether an unburned cell next to the front catches fire
+	 */
+	public interface Ignition {
+		/**
+		 * @param cell the linear index of the cell
+		 * @param burningNeighbors the number of its neighbors that burn
+		 * @return whether the cell catches fire
+		 */
+		boolean catches(long cell, int burningNeighbors);
+	}
+
+	/**
+	 * Constructor of the FireFront class, to be loaded from the grid before the first step.
+	 * @param grid the shape giving the neighbors of the cells
+	 * @param xMax the x length
+	 * @param yMax the y length
+	 */
+	public FireFront(Grid grid, int xMax, int yMax) {
+		this.grid = grid;
+		this.xMax = xMax;
+		this.yMax = yMax;
+		row = new byte[xMax];
+		changed = new ActivityMask(xMax, yMax, grid.isToroidal());
+	}
+
+	/**
+	 * @param states the statuses of the cells
+	 * @return whether the grid has few enough cells for int indices
+	 */
+	public static boolean supports(StateBuffer states) {
+		return states.size() <= Integer.MAX_VALUE;
+	}
+
+	/**
+	 * @param states the statuses of the cells
+	 * @return whether cells were set since the front was last loaded or stepped
+	 */
+	public boolean isStale(StateBuffer states) {
+		return states.getEdits() != edits;
+	}
+
+	/**
+	 * Forgets the front, for when the grid was stepped some other way
+	 */
+	public void invalidate() {
+		edits = -1;
+	}
+
+	/**
+	 * Finds every burning cell of the grid
+	 * @param states the statuses of the cells
+	 */
+	public void load(StateBuffer states) {
+		int x, y;
+
+		burningCount = 0;
+		for (y = 0; y < yMax; y++) {
+			states.readRow(y, row, 0);
+			for (x = 0; x < xMax; x++) {
+				if (row[x] == BURNING) {
+					burning = add(burning, burningCount++, y * xMax + x);
+				}
+			}
+		}
+		changed.markAll();
+		edits = states.getEdits();
+	}
+
+	/**
+	 * @return the number of burning cells
+	 */
+	public int size() {
+		return burningCount;
+	}
+
+	/**
+	 * @return whether nothing is burning, so the fire is over
+	 */
+	public boolean isEmpty() {
+		return burningCount == 0;
+	}
+
+	/**
+	 * The tiles whose cells changed in the last step
+	 * @return the changed tiles
+	 */
+	public ActivityMask getChangedTiles() {
+		return changed;
+	}
+
+	/**
+	 * Burns out the burning cells and sets fire to the unburned cells next to them that catch
+	 * @param states the statuses of the cells
+	 * @param ignition whether an unburned cell catches fire
+	 */
+	public void step(StateBuffer states, Ignition ignition) {
+		int i, k, n, cell;
+
+		changed.beginStep();
+		candidates.clear();
+		candidateCount = 0;
+		for (i = 0; i < burningCount; i++) {
+			n = grid.getImmediateNeighbors(burning[i] % xMax, burning[i] / xMax, xMax, yMax, neighbors);
+			for (k = 0; k < n; k++) {
+				cell = neighbors[k];
+				if (states.get(cell) != UNBURNED) {
+					continue;
+				}
+				int count = candidates.get(cell, 0);
+				if (count == 0) {
+					candidateList = add(candidateList, candidateCount++, cell);
+				}
+				candidates.put(cell, count + 1);
+			}
+		}
+
+		nextCount = 0;
+		for (i = 0; i < candidateCount; i++) {
+			if (ignition.catches(candidateList[i], candidates.get(candidateList[i], 0))) {
+				next = add(next, nextCount++, candidateList[i]);
+			}
+		}
+		for (i = 0; i < burningCount; i++) {
+			states.write(burning[i], BURNED);
+			changed.markChanged(burning[i] % xMax, burning[i] / xMax);
+		}
+		for (i = 0; i < nextCount; i++) {
+			states.write(next[i], BURNING);
+			changed.markChanged(next[i] % xMax, next[i] / xMax);
+		}
+
+		int [] temp = burning;
+		burning = next;
+		next = temp;
+		burningCount = nextCount;
+		changed.endStep();
+		edits = states.getEdits();
+	}
+
+	private static int [] add(int [] list, int count, int cell) {
+		if (count == list.length) {
+			int [] bigger = new int[list.length * 2];
+			System.arraycopy(list, 0, bigger, 0, count);
+			list = bigger;
+		}
+		list[count] = cell;
+		return list;
+	}
+}
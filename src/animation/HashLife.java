@@ -0,0 +1,377 @@
+package animation;
+
+import grid.ActivityMask;
+import grid.Grid;
+import grid.SquareGrid;
+import grid.StateBuffer;
+
+/**
+ * Steps an outer-totalistic rule with HashLife: the grid is a quadtree of canonical nodes,
+ * so repeated regions are stored once, and every node remembers its center advanced
+ * 2^j generations, so a jump of 2^j generations costs about as much as one step of a
+ * pattern with the same number of distinct nodes.
+ * A node of level L covers 2^L x 2^L cells; its result is its center, of level L - 1,
+ * advanced 2^j generations for some j <= L - 2.
+ * A toroidal 2^n x 2^n grid is exact: four copies of it tiled into one node of level n + 1
+ * behave like the infinite periodic plane, whose center after up to 2^(n-1) generations
+ * is the grid itself shifted by half its size.
+ * The node table is bounded: when a jump would make it hold more nodes than the budget,
+ * the jump is abandoned, the table is rebuilt from the nodes of the current grid only with
+ * every remembered result dropped, and the jump is tried again, halved each time it still
+ * does not fit. A single generation is always taken, so the budget must at least hold the
+ * nodes of the grid and of one generation of it.
+ * The tree of the grid is kept between calls and only rebuilt after cells were edited,
+ * and only the subtrees that differ from the last tree written are copied back.
+ */
+public class HashLife {
+
+	/**
+	 * Thrown by join() when a jump needs more nodes than the budget, made once and without a stack trace
+	 */
+	private static final class OverBudget extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		OverBudget() {
+			super(null, null, false, false);
+		}
+	}
+
+	private static final OverBudget OVER_BUDGET = new OverBudget();
+
+	private static final class Node {
+		final Node nw, ne, sw, se;
+		final int level;
+		final long population;
+		final int hash;
+		Node next;
+		Node result;
+		int resultStep = -1;
+
+		Node(Node nw, Node ne, Node sw, Node se, int level, long population, int hash) {
+			this.nw = nw;
+			this.ne = ne;
+			this.sw = sw;
+			this.se = se;
+			this.level = level;
+			this.population = population;
+			this.hash = hash;
+		}
+	}
+
+	private final Node dead = new Node(null, null, null, null, 0, 0, 0);
+	private final Node alive = new Node(null, null, null, null, 0, 1, 1);
+	private final int budget;
+	private final LifeRule rule;
+	private Node [] table = new Node[1 << 16];
+	private int count;
+	private Node root;
+	private StateBuffer source;
+	private int edits;
+	// whether join() may not grow the table past the budget
+	private boolean limited;
+	private final int [] cells = new int[16];
+
+	/**
+	 * Constructor of the HashLife class.
+	 * @param budget the number of nodes the table may hold before it is rebuilt
+	 * @param rule the rule to step
+	 */
+	public HashLife(int budget, LifeRule rule) {
+		this.budget = budget;
+		this.rule = rule;
+	}
+
+	/**
+	 * @param g the grid of the simulation
+	 * @param states the statuses of the simulation
+	 * @return whether advance() is exact on the grid: a toroidal square of side a power of two
+	 */
+	public static boolean supports(Grid g, StateBuffer states) {
+		int side = states.getXMax();
+		return (g instanceof SquareGrid) && g.isToroidal() && (side == states.getYMax())
+				&& (side >= 2) && (Integer.bitCount(side) == 1);
+	}
+
+	/**
+	 * Advances the statuses by a number of generations, in jumps of powers of two
+	 * @param states the statuses of a grid supports() accepts
+	 * @param generations the number of generations
+	 * @param changes the mask the cells that changed are marked in
+	 */
+	public void advance(StateBuffer states, long generations, ActivityMask changes) {
+		int n = Integer.numberOfTrailingZeros(states.getXMax());
+		int k;
+
+		if ((root == null) || (states != source) || (states.getEdits() != edits)) {
+			root = build(states, 0, 0, n);
+			source = states;
+		}
+		Node before = root;
+
+		while (generations > 0) {
+			k = jump(Math.min(n - 1, 63 - Long.numberOfLeadingZeros(generations)));
+			generations -= 1L << k;
+			if (count > budget) {
+				collect(root);
+			}
+		}
+		write(root, before, states, 0, 0, changes);
+		edits = states.getEdits();
+	}
+
+	/**
+	 * Advances the grid 2^k generations, or fewer when that many do not fit in the budget
+	 * @param k the log of the generations wanted
+	 * @return the log of the generations taken
+	 */
+	private int jump(int k) {
+		boolean fresh = false;
+
+		while (true) {
+			// one generation from a table holding only the grid is taken whatever it costs
+			limited = (k > 0) || !fresh;
+			try {
+				Node next = result(join(root, root, root, root), k);
+				// the result is the grid shifted by half its size, and shifting again undoes it
+				root = join(next.se, next.sw, next.ne, next.nw);
+				return k;
+			}
+			catch (OverBudget e) {
+				collect(root);
+				if (fresh) {
+					k--;
+				}
+				fresh = true;
+			}
+			finally {
+				limited = false;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of nodes in the table
+	 */
+	public int size() {
+		return count;
+	}
+
+	private Node result(Node node, int j) {
+		j = Math.min(j, node.level - 2);
+		if (node.resultStep == j) {
+			return node.result;
+		}
+		Node r;
+		if (node.level == 2) {
+			r = base(node);
+		}
+		else {
+			Node n00 = node.nw;
+			Node n01 = join(node.nw.ne, node.ne.nw, node.nw.se, node.ne.sw);
+			Node n02 = node.ne;
+			Node n10 = join(node.nw.sw, node.nw.se, node.sw.nw, node.sw.ne);
+			Node n11 = join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+			Node n12 = join(node.ne.sw, node.ne.se, node.se.nw, node.se.ne);
+			Node n20 = node.sw;
+			Node n21 = join(node.sw.ne, node.se.nw, node.sw.se, node.se.sw);
+			Node n22 = node.se;
+			if (j == node.level - 2) {
+				// half the generations on the nine overlapping subnodes, the other half on their four joins
+				n00 = result(n00, j);
+				n01 = result(n01, j);
+				n02 = result(n02, j);
+				n10 = result(n10, j);
+				n11 = result(n11, j);
+				n12 = result(n12, j);
+				n20 = result(n20, j);
+				n21 = result(n21, j);
+				n22 = result(n22, j);
+			}
+			else {
+				// fewer generations than the node allows: take the centers and advance only their joins
+				n00 = center(n00);
+				n01 = center(n01);
+				n02 = center(n02);
+				n10 = center(n10);
+				n11 = center(n11);
+				n12 = center(n12);
+				n20 = center(n20);
+				n21 = center(n21);
+				n22 = center(n22);
+			}
+			r = join(result(join(n00, n01, n10, n11), j), result(join(n01, n02, n11, n12), j),
+					result(join(n10, n11, n20, n21), j), result(join(n11, n12, n21, n22), j));
+		}
+		node.result = r;
+		node.resultStep = j;
+		return r;
+	}
+
+	private Node center(Node node) {
+		return join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+	}
+
+	/**
+	 * Steps the center 2 x 2 cells of a 4 x 4 node one generation
+	 */
+	private Node base(Node node) {
+		int x, y;
+
+		for (y = 0; y < 4; y++) {
+			for (x = 0; x < 4; x++) {
+				cells[y * 4 + x] = (int) cell(node, x, y);
+			}
+		}
+		return join(nextCell(cells, 1, 1), nextCell(cells, 2, 1), nextCell(cells, 1, 2), nextCell(cells, 2, 2));
+	}
+
+	private Node nextCell(int [] cells, int x, int y) {
+		int dx, dy;
+		int total = 0;
+
+		for (dy = -1; dy <= 1; dy++) {
+			for (dx = -1; dx <= 1; dx++) {
+				if ((dx != 0) || (dy != 0)) {
+					total += cells[(y + dy) * 4 + (x + dx)];
+				}
+			}
+		}
+		return (rule.next(cells[y * 4 + x], total) == 1) ? alive : dead;
+	}
+
+	private long cell(Node node, int x, int y) {
+		int half;
+
+		while (node.level > 0) {
+			half = 1 << (node.level - 1);
+			if (y < half) {
+				node = (x < half) ? node.nw : node.ne;
+			}
+			else {
+				node = (x < half) ? node.sw : node.se;
+				y -= half;
+			}
+			if (x >= half) {
+				x -= half;
+			}
+		}
+		return node.population;
+	}
+
+	/**
+	 * @return the canonical node with the four children
+	 */
+	private Node join(Node nw, Node ne, Node sw, Node se) {
+		int hash = hash(nw, ne, sw, se);
+		int slot = hash & (table.length - 1);
+		Node node;
+
+		for (node = table[slot]; node != null; node = node.next) {
+			if ((node.nw == nw) && (node.ne == ne) && (node.sw == sw) && (node.se == se)) {
+				return node;
+			}
+		}
+		if (limited && (count >= budget)) {
+			throw OVER_BUDGET;
+		}
+		node = new Node(nw, ne, sw, se, nw.level + 1,
+				nw.population + ne.population + sw.population + se.population, hash);
+		insert(node);
+		return node;
+	}
+
+	private int hash(Node nw, Node ne, Node sw, Node se) {
+		int h = ((nw.hash * 31 + ne.hash) * 31 + sw.hash) * 31 + se.hash;
+		h *= 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+
+	private void insert(Node node) {
+		int slot = node.hash & (table.length - 1);
+		node.next = table[slot];
+		table[slot] = node;
+		count++;
+		if (count > table.length) {
+			rehash(table.length * 2);
+		}
+	}
+
+	private void rehash(int capacity) {
+		Node [] old = table;
+		Node node, next;
+		int i;
+
+		table = new Node[capacity];
+		count = 0;
+		for (i = 0; i < old.length; i++) {
+			for (node = old[i]; node != null; node = next) {
+				next = node.next;
+				insert(node);
+			}
+		}
+	}
+
+	/**
+	 * Drops every node the grid does not use, and every remembered result
+	 */
+	private void collect(Node root) {
+		table = new Node[table.length];
+		count = 0;
+		keep(root);
+	}
+
+	private void keep(Node node) {
+		if ((node.level == 0) || contains(node)) {
+			return;
+		}
+		node.result = null;
+		node.resultStep = -1;
+		keep(node.nw);
+		keep(node.ne);
+		keep(node.sw);
+		keep(node.se);
+		insert(node);
+	}
+
+	private boolean contains(Node node) {
+		Node other;
+
+		for (other = table[node.hash & (table.length - 1)]; other != null; other = other.next) {
+			if (other == node) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Node build(StateBuffer states, int x, int y, int level) {
+		if (level == 0) {
+			return (states.get(x, y) == 0) ? dead : alive;
+		}
+		int half = 1 << (level - 1);
+		return join(build(states, x, y, level - 1), build(states, x + half, y, level - 1),
+				build(states, x, y + half, level - 1), build(states, x + half, y + half, level - 1));
+	}
+
+	/**
+	 * Writes the cells of a node that differ from the node last written there.
+	 * Nodes are canonical, so the same node holds the same cells and is skipped.
+	 */
+	private void write(Node node, Node old, StateBuffer states, int x, int y, ActivityMask changes) {
+		int half;
+
+		if (node == old) {
+			return;
+		}
+		if (node.level == 0) {
+			states.write(states.index(x, y), (int) node.population);
+			changes.markChanged(x, y);
+			return;
+		}
+		half = 1 << (node.level - 1);
+		write(node.nw, old.nw, states, x, y, changes);
+		write(node.ne, old.ne, states, x + half, y, changes);
+		write(node.sw, old.sw, states, x, y + half, changes);
+		write(node.se, old.se, states, x + half, y + half, changes);
+	}
+}
@@ -0,0 +1,188 @@
+package animation;
+
+import grid.ActivityMask;
+import grid.PackedStateBuffer;
+import grid.StateBuffer;
+
+/**
+ * Steps an outer-totalistic rule on a square grid stored one bit per cell,
+ * 64 cells at a time: the eight neighbors of every bit of a word are added
+ * with bit-sliced full adders, so a step costs a few dozen operations per word.
+ * B3/S23 only needs to know whether the total is 2 or 3; other rules build the
+ * four bits of the total and match it against every count of the rule.
+ * Rows of any width wrap like SquareGrid(true) when toroidal, or see dead cells past the edges.
+ */
+public class LifeBitboard {
+
+	private final boolean toroidal;
+	private final boolean [] birth = new boolean[9];
+	private final boolean [] survival = new boolean[9];
+	private final boolean life;
+
+	/**
+	 * Constructor of the LifeBitboard class.
+	 * @param toroidal whether the grid wraps around its edges
+	 * @param rule the rule to step
+	 */
+	public LifeBitboard(boolean toroidal, LifeRule rule) {
+		this.toroidal = toroidal;
+		life = rule.isLife();
+		for (int count = 0; count <= 8; count++) {
+			birth[count] = rule.isBirth(count);
+			survival[count] = rule.isSurvival(count);
+		}
+	}
+
+	/**
+	 * @param states the statuses to step
+	 * @return whether step() can step the buffer
+	 */
+	public static boolean supports(StateBuffer states) {
+		return (states instanceof PackedStateBuffer) && (((PackedStateBuffer) states).getBits() == 1);
+	}
+
+	/**
+	 * Steps every cell of a one-bit packed buffer by one generation
+	 * @param states the statuses, which hold the next generation afterwards
+	 * @param changes the mask the cells that changed are marked in, a half word at a time
+	 */
+	public void step(PackedStateBuffer states, ActivityMask changes) {
+		long [] cur = states.getFrontWords();
+		long [] next = states.getBackWords();
+		int words = states.getWordsPerRow();
+		int yMax = states.getYMax();
+		int lastBit = (states.getXMax() - 1) & 63;
+		long lastMask = (lastBit == 63) ? -1L : (1L << (lastBit + 1)) - 1;
+		int y, w, up, down;
+		long diff;
+
+		for (y = 0; y < yMax; y++) {
+			up = rowStart(y - 1, yMax, words);
+			down = rowStart(y + 1, yMax, words);
+			for (w = 0; w < words; w++) {
+				next[y * words + w] = stepWord(cur, up, y * words, down, w, words, lastBit);
+			}
+			next[y * words + words - 1] &= lastMask;
+			for (w = 0; w < words; w++) {
+				// a word holds 64 cells, two tiles of the mask
+				diff = next[y * words + w] ^ cur[y * words + w];
+				if ((diff & 0xffffffffL) != 0) {
+					changes.markChanged(w << 6, y);
+				}
+				if ((diff >>> 32) != 0) {
+					changes.markChanged((w << 6) + 32, y);
+				}
+			}
+		}
+		states.swap();
+	}
+
+	private long stepWord(long [] cur, int up, int mid, int down, int w, int words, int lastBit) {
+		return nextWord(west(cur, up, w, words, lastBit), word(cur, up, w), east(cur, up, w, words, lastBit),
+				west(cur, mid, w, words, lastBit), word(cur, mid, w), east(cur, mid, w, words, lastBit),
+				west(cur, down, w, words, lastBit), word(cur, down, w), east(cur, down, w, words, lastBit));
+	}
+
+	/**
+	 * Steps 64 cells at once from the words of their neighbors: bit i of each word is the
+	 * neighbor of cell i to the west, center or east in the row above, the row itself and the row below
+	 * @return the next statuses of the 64 cells
+	 */
+	long nextWord(long aw, long ac, long ae, long mw, long mc, long me, long bw, long bc, long be) {
+		long a0, a1, m0, m1, b0, b1, s0, c0, t0, t1, u0, u1, one;
+
+		// two-bit counts of the row above, the row itself without the cell, and the row below
+		a0 = aw ^ ac ^ ae;
+		a1 = (aw & ac) | (ae & (aw ^ ac));
+		m0 = mw ^ me;
+		m1 = mw & me;
+		b0 = bw ^ bc ^ be;
+		b1 = (bw & bc) | (be & (bw ^ bc));
+
+		// ones bit of the total, and its carry into the twos
+		s0 = a0 ^ m0 ^ b0;
+		c0 = (a0 & m0) | (b0 & (a0 ^ m0));
+
+		t0 = a1 ^ m1;
+		t1 = a1 & m1;
+		u0 = b1 ^ c0;
+		u1 = b1 & c0;
+		if (life) {
+			// the total is 2 or 3 exactly when one of the four twos bits is set
+			one = (t0 ^ u0) & ~(t1 | u1);
+			return one & (s0 | mc);
+		}
+
+		// twos, fours and eights bits of the total
+		long d1 = t0 ^ u0;
+		long carry = t0 & u0;
+		long d2 = t1 ^ u1 ^ carry;
+		long d3 = (t1 & u1) | (carry & (t1 ^ u1));
+		long born = 0;
+		long survive = 0;
+		long equal;
+		int count;
+
+		for (count = 0; count <= 8; count++) {
+			if (birth[count] || survival[count]) {
+				equal = (((count & 1) != 0) ? s0 : ~s0) & (((count & 2) != 0) ? d1 : ~d1)
+						& (((count & 4) != 0) ? d2 : ~d2) & (((count & 8) != 0) ? d3 : ~d3);
+				if (birth[count]) {
+					born |= equal;
+				}
+				if (survival[count]) {
+					survive |= equal;
+				}
+			}
+		}
+		return (~mc & born) | (mc & survive);
+	}
+
+	private long word(long [] cur, int row, int w) {
+		return (row < 0) ? 0 : cur[row + w];
+	}
+
+	/**
+	 * @return the word whose bit i is the cell west of bit i
+	 */
+	private long west(long [] cur, int row, int w, int words, int lastBit) {
+		if (row < 0) {
+			return 0;
+		}
+		long result = cur[row + w] << 1;
+		if (w > 0) {
+			result |= cur[row + w - 1] >>> 63;
+		}
+		else if (toroidal) {
+			result |= (cur[row + words - 1] >>> lastBit) & 1;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the word whose bit i is the cell east of bit i
+	 */
+	private long east(long [] cur, int row, int w, int words, int lastBit) {
+		if (row < 0) {
+			return 0;
+		}
+		long result = cur[row + w] >>> 1;
+		if (w < words - 1) {
+			result |= cur[row + w + 1] << 63;
+		}
+		else if (toroidal) {
+			result |= (cur[row] & 1) << lastBit;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the first word of a row, or -1 for a row past a bounded edge
+	 */
+	private int rowStart(int y, int yMax, int words) {
+		if (toroidal) {
+			return Math.floorMod(y, yMax) * words;
+		}
+		return ((y < 0) || (y >= yMax)) ? -1 : y * words;
+	}
+}
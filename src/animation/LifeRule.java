@@ -0,0 +1,179 @@
+package animation;
+
+import java.util.BitSet;
+
+/**
+ * An outer-totalistic rule of two statuses: a dead cell is born and a live cell survives
+ * when its number of live neighbors is in the rule's birth or survival set.
+ * Written "B3/S23" (Game of Life), "B36/S23" (HighLife), "B2/S" (Seeds), "B3678/S34678" (Day and Night),
+ * or in the older survival/birth form "23/3".
+ * Counts above 9, for the wider neighborhoods, are written as a list of counts and ranges
+ * separated by commas, as in "B34..45/S33..57" or "B3,10/S2,3"; a part with a comma or a
+ * range is read as a list, any other part as one digit per count.
+ */
+public class LifeRule {
+
+	public static final String LIFE = "B3/S23";
+	// parsed once, for isLife()
+	private static final LifeRule LIFE_RULE = parse(LIFE);
+
+	// bit k is set when k neighbors give birth or survival
+	private final BitSet birth;
+	private final BitSet survival;
+
+	private LifeRule(BitSet birth, BitSet survival) {
+		this.birth = birth;
+		this.survival = survival;
+	}
+
+	/**
+	 * Reads a rule string
+	 * @param rule the rule, in B/S or S/B form
+	 * @return the rule
+	 * @throws IllegalArgumentException if the string is not a rule
+	 */
+	public static LifeRule parse(String rule) {
+		String [] parts = rule.trim().toUpperCase().split("/", -1);
+		if (parts.length != 2) {
+			throw new IllegalArgumentException("The rule " + rule + " must have the form B3/S23!");
+		}
+		if (parts[0].startsWith("B") && parts[1].startsWith("S")) {
+			return new LifeRule(counts(parts[0].substring(1), rule), counts(parts[1].substring(1), rule));
+		}
+		else if (parts[0].startsWith("S") && parts[1].startsWith("B")) {
+			return new LifeRule(counts(parts[1].substring(1), rule), counts(parts[0].substring(1), rule));
+		}
+		// survival/birth without letters
+		return new LifeRule(counts(parts[1], rule), counts(parts[0], rule));
+	}
+
+	private static BitSet counts(String part, String rule) {
+		BitSet set = new BitSet();
+		int from, to;
+
+		if (!part.contains(",") && !part.contains("..")) {
+			for (char c : part.toCharArray()) {
+				if ((c < '0') || (c > '9')) {
+					throw new IllegalArgumentException("The rule " + rule + " can only use digits, commas and ranges like 3..5!");
+				}
+				set.set(c - '0');
+			}
+			return set;
+		}
+		for (String entry : part.split(",")) {
+			if (entry.isEmpty()) {
+				continue;
+			}
+			String [] range = entry.split("\\.\\.", -1);
+			try {
+				from = Integer.parseInt(range[0]);
+				to = (range.length == 2) ? Integer.parseInt(range[1]) : from;
+			}
+			catch (NumberFormatException e) {
+				throw new IllegalArgumentException("The rule " + rule + " can only use digits, commas and ranges like 3..5!");
+			}
+			if ((range.length > 2) || (from < 0) || (to < from)) {
+				throw new IllegalArgumentException("The rule " + rule + " has a wrong count or range " + entry + "!");
+			}
+			set.set(from, to + 1);
+		}
+		return set;
+	}
+
+	/**
+	 * @return the largest neighbor count the rule gives birth or survival on, or -1 if none
+	 */
+	public int getMaxCount() {
+		return Math.max(birth.length(), survival.length()) - 1;
+	}
+
+	/**
+	 * @param status the status of the cell, 0 or 1
+	 * @param count the number of live neighbors
+	 * @return the next status of the cell
+	 */
+	public int next(int status, int count) {
+		BitSet set = (status == 0) ? birth : survival;
+		return set.get(count) ? 1 : 0;
+	}
+
+	/**
+	 * @param count a number of neighbors
+	 * @return whether a dead cell with that many live neighbors is born
+	 */
+	public boolean isBirth(int count) {
+		return next(0, count) == 1;
+	}
+
+	/**
+	 * @param count a number of neighbors
+	 * @return whether a live cell with that many live neighbors survives
+	 */
+	public boolean isSurvival(int count) {
+		return next(1, count) == 1;
+	}
+
+	/**
+	 * @return whether the rule is B3/S23
+	 */
+	public boolean isLife() {
+		return birth.equals(LIFE_RULE.birth) && survival.equals(LIFE_RULE.survival);
+	}
+
+	/**
+	 * The bits of a count in the lookup table, so the table index is (status << shift) | count
+	 * @param maxCount the largest number of neighbors
+	 * @return the shift of the status in the index
+	 */
+	public static int tableShift(int maxCount) {
+		return 32 - Integer.numberOfLeadingZeros(maxCount);
+	}
+
+	/**
+	 * Compiles the rule into a table of next statuses indexed by (status << tableShift(maxCount)) | count,
+	 * so the next status of a cell is one lookup
+	 * @param maxCount the largest number of neighbors
+	 * @return the table
+	 */
+	public byte [] compile(int maxCount) {
+		int shift = tableShift(maxCount);
+		byte [] table = new byte[2 << shift];
+		int count;
+
+		for (count = 0; count < (1 << shift); count++) {
+			table[count] = (byte) next(0, count);
+			table[(1 << shift) | count] = (byte) next(1, count);
+		}
+		return table;
+	}
+
+	@Override
+	public String toString() {
+		return "B" + format(birth) + "/S" + format(survival);
+	}
+
+	// one digit per count up to 9, otherwise the list form with ranges
+	private static String format(BitSet set) {
+		StringBuilder b = new StringBuilder();
+		int from, to;
+
+		if (set.length() <= 10) {
+			for (from = set.nextSetBit(0); from >= 0; from = set.nextSetBit(from + 1)) {
+				b.append(from);
+			}
+			return b.toString();
+		}
+		for (from = set.nextSetBit(0); from >= 0; from = set.nextSetBit(to)) {
+			to = set.nextClearBit(from);
+			if (b.length() > 0) {
+				b.append(',');
+			}
+			b.append(from);
+			if (to - 1 > from) {
+				b.append("..").append(to - 1);
+			}
+		}
+		// a single count above 9 still needs a comma to be read as a list
+		return (b.indexOf(",") < 0) && (b.indexOf("..") < 0) ? b + "," : b.toString();
+	}
+}
@@ -0,0 +1,88 @@
+package animation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a task over a range of rows or cells on a ForkJoinPool, split into bands.
+ * The bands do not overlap, so a task that only writes inside its own band needs no locks,
+ * and the result is the same as running the whole range on one thread.
+ */
+class ParallelBands {
+
+	// bands per thread, so a thread that finishes early can steal more work
+	private static final int BANDS_PER_THREAD = 4;
+
+	private final ForkJoinPool pool;
+	private final int threads;
+
+	/**
+	 * The work done on one band
+	 */
+	interface Band {
+		/**
+		 * @param from the first row or cell of the band
+		 * @param to the row or cell after the last one
+		 */
+		void run(int from, int to);
+	}
+
+	/**
+	 * Constructor of the ParallelBands class.
+	 * @param threads the number of threads of the pool
+	 */
+	ParallelBands(int threads) {
+		this.threads = threads;
+		pool = new ForkJoinPool(threads);
+	}
+
+	int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Stops the threads of the pool once they are idle
+	 */
+	void close() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Runs a task over [0, total) and waits for every band to finish
+	 * @param total the end of the range
+	 * @param align the bands start at multiples of it, so they can own whole tiles
+	 * @param band the task
+	 */
+	void run(int total, int align, Band band) {
+		int units = (total + align - 1) / align;
+		int perBand = Math.max(1, (units + threads * BANDS_PER_THREAD - 1) / (threads * BANDS_PER_THREAD));
+		pool.invoke(new Split(0, total, perBand * align, band));
+	}
+
+	private static class Split extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final int grain;
+		private final Band band;
+
+		Split(int from, int to, int grain, Band band) {
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+			this.band = band;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= grain) {
+				band.run(from, to);
+				return;
+			}
+			int middle = from + Math.max(1, (to - from) / grain / 2) * grain;
+			invokeAll(new Split(from, middle, grain, band), new Split(middle, to, grain, band));
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package animation;
+
+/**
+ * The rule of a synchronous simulation applied to one row at a time,
+ * so that the simulation can be stepped without holding the whole grid in an array.
+ * Bands of rows may be stepped on several threads at once, so it must not keep state between calls.
+ */
+interface RowRule {
+	/**
+	 * Computes the next statuses of the cells from x = from to x = to - 1 of a row
+	 * @param current the current statuses, the cell at x = 0 at offset
+	 * @param offset the position in current of the cell at x = 0
+	 * @param counts the neighbors of each cell holding the counted status, the count of x at x
+	 * @param next the array the next statuses are written into, the status of x at x
+	 * @param y the row
+	 * @param from the first x
+	 * @param to the x after the last one
+	 */
+	void nextRow(byte [] current, int offset, int [] counts, byte [] next, int y, int from, int to);
+}
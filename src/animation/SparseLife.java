@@ -0,0 +1,312 @@
+package animation;
+
+import java.util.ArrayDeque;
+
+import cell.Indices;
+import grid.ActivityMask;
+import grid.StateBuffer;
+import util.LongIntHashMap;
+import util.LongObjectHashMap;
+
+/**
+ * An unbounded Game of Life universe made of 64 x 64 tiles kept in a map keyed by tile coordinates,
+ * so memory follows the live cells rather than their bounding box.
+ * A tile is 64 words, one row of 64 cells each with cell x at bit x, stepped with the adders of LifeBitboard.
+ * A step computes every live tile and the neighbors its border cells reach; tiles that end up
+ * empty are dropped and their arrays reused.
+ * Cell coordinates are ints, so the universe spans 2^32 cells in each direction.
+ */
+public class SparseLife {
+
+	public static final int SHIFT = 6;
+	public static final int TILE = 1 << SHIFT;
+
+	private final LifeBitboard rule;
+	private LongObjectHashMap<long []> tiles = new LongObjectHashMap<long []>();
+	private LongObjectHashMap<long []> next = new LongObjectHashMap<long []>();
+	private final LongIntHashMap visited = new LongIntHashMap();
+	private final ArrayDeque<long []> free = new ArrayDeque<long []>();
+	private final long [][] around = new long[9][];
+	// the tiles in the window at the last copy, whose cells the buffer may still hold
+	private final LongIntHashMap shown = new LongIntHashMap();
+	private long [] shownKeys = new long[16];
+	private long [] previousKeys = new long[16];
+	private int shownCount;
+
+	/**
+	 * Constructor of the SparseLife class, with every cell dead.
+	 * @param rule the rule to step, which cannot give birth with 0 neighbors
+	 */
+	public SparseLife(LifeRule rule) {
+		if (rule.isBirth(0)) {
+			throw new IllegalArgumentException("An unbounded universe cannot step a rule with birth on 0 neighbors");
+		}
+		this.rule = new LifeBitboard(false, rule);
+	}
+
+	/**
+	 * @param x the x value of the cell
+	 * @param y the y value of the cell
+	 * @return the status of the cell, 0 or 1
+	 */
+	public int get(int x, int y) {
+		long [] tile = tiles.get(Indices.pack(x >> SHIFT, y >> SHIFT));
+		return (tile == null) ? 0 : (int) ((tile[y & (TILE - 1)] >>> (x & (TILE - 1))) & 1);
+	}
+
+	/**
+	 * @param x the x value of the cell
+	 * @param y the y value of the cell
+	 * @param status the new status of the cell, 0 or 1
+	 */
+	public void set(int x, int y, int status) {
+		long key = Indices.pack(x >> SHIFT, y >> SHIFT);
+		long [] tile = tiles.get(key);
+		if (tile == null) {
+			if (status == 0) {
+				return;
+			}
+			tile = allocate();
+			tiles.put(key, tile);
+		}
+		if (status == 0) {
+			tile[y & (TILE - 1)] &= ~(1L << (x & (TILE - 1)));
+		}
+		else {
+			tile[y & (TILE - 1)] |= 1L << (x & (TILE - 1));
+		}
+	}
+
+	/**
+	 * Copies the statuses of a window of the universe, with its corner at (0, 0), from a buffer
+	 * @param states the buffer of the window
+	 */
+	public void load(StateBuffer states) {
+		int x, y, slot;
+
+		for (y = 0; y < states.getYMax(); y++) {
+			for (x = 0; x < states.getXMax(); x++) {
+				set(x, y, states.get(x, y));
+			}
+		}
+		shown.clear();
+		shownCount = 0;
+		for (slot = 0; slot < tiles.capacity(); slot++) {
+			if (tiles.valueAt(slot) != null) {
+				show(tiles.keyAt(slot), states);
+			}
+		}
+	}
+
+	/**
+	 * Copies the statuses of a window of the universe, with its corner at (0, 0), into a buffer,
+	 * as part of a step rather than as edits.
+	 * Only the live tiles are written, and the tiles that died since the last copy or load cleared,
+	 * so the buffer must not have changed since then.
+	 * @param states the buffer of the window
+	 * @param changes the mask the cells that changed are marked in
+	 */
+	public void copyTo(StateBuffer states, ActivityMask changes) {
+		int slot, i, count;
+		long [] temp;
+
+		temp = previousKeys;
+		previousKeys = shownKeys;
+		shownKeys = temp;
+		count = shownCount;
+		shown.clear();
+		shownCount = 0;
+		for (slot = 0; slot < tiles.capacity(); slot++) {
+			if ((tiles.valueAt(slot) != null) && show(tiles.keyAt(slot), states)) {
+				copyTile(tiles.keyAt(slot), tiles.valueAt(slot), states, changes);
+			}
+		}
+		for (i = 0; i < count; i++) {
+			if (!shown.containsKey(previousKeys[i])) {
+				copyTile(previousKeys[i], null, states, changes);
+			}
+		}
+	}
+
+	/**
+	 * Steps every live cell of the universe one generation
+	 */
+	public void step() {
+		int slot, dx, dy;
+		long [] tile;
+
+		visited.clear();
+		next.clear();
+		for (slot = 0; slot < tiles.capacity(); slot++) {
+			tile = tiles.valueAt(slot);
+			if (tile == null) {
+				continue;
+			}
+			int tx = (int) (tiles.keyAt(slot) >> 32);
+			int ty = (int) tiles.keyAt(slot);
+			long columns = 0;
+			for (long row : tile) {
+				columns |= row;
+			}
+			boolean north = tile[0] != 0;
+			boolean south = tile[TILE - 1] != 0;
+			boolean left = (columns & 1) != 0;
+			boolean right = (columns >>> (TILE - 1)) != 0;
+			for (dy = -1; dy <= 1; dy++) {
+				for (dx = -1; dx <= 1; dx++) {
+					// a neighbor tile can only come alive if the border facing it has live cells
+					if (((dy == -1) && !north) || ((dy == 1) && !south) || ((dx == -1) && !left) || ((dx == 1) && !right)) {
+						continue;
+					}
+					stepTile(tx + dx, ty + dy);
+				}
+			}
+		}
+		for (slot = 0; slot < tiles.capacity(); slot++) {
+			if (tiles.valueAt(slot) != null) {
+				free.push(tiles.valueAt(slot));
+			}
+		}
+		LongObjectHashMap<long []> temp = tiles;
+		tiles = next;
+		next = temp;
+	}
+
+	/**
+	 * @return the number of live cells
+	 */
+	public long population() {
+		long total = 0;
+
+		for (int slot = 0; slot < tiles.capacity(); slot++) {
+			if (tiles.valueAt(slot) != null) {
+				for (long row : tiles.valueAt(slot)) {
+					total += Long.bitCount(row);
+				}
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * @return the number of tiles holding live cells
+	 */
+	public int tileCount() {
+		return tiles.size();
+	}
+
+	/**
+	 * Remembers a tile as shown if it overlaps the window
+	 * @return whether it overlaps the window
+	 */
+	private boolean show(long key, StateBuffer states) {
+		int tx = (int) (key >> 32);
+		int ty = (int) key;
+
+		if ((tx < 0) || (ty < 0) || ((tx << SHIFT) >= states.getXMax()) || ((ty << SHIFT) >= states.getYMax())) {
+			return false;
+		}
+		if (shownCount == shownKeys.length) {
+			shownKeys = java.util.Arrays.copyOf(shownKeys, shownCount * 2);
+			previousKeys = java.util.Arrays.copyOf(previousKeys, shownCount * 2);
+		}
+		shownKeys[shownCount++] = key;
+		shown.put(key, 1);
+		return true;
+	}
+
+	/**
+	 * Writes the part of a tile inside the window into the buffer
+	 * @param tile the rows of the tile, null for a dead tile
+	 */
+	private void copyTile(long key, long [] tile, StateBuffer states, ActivityMask changes) {
+		int x0 = ((int) (key >> 32)) << SHIFT;
+		int y0 = ((int) key) << SHIFT;
+		int width = Math.min(TILE, states.getXMax() - x0);
+		int height = Math.min(TILE, states.getYMax() - y0);
+		int x, r, status;
+		long word, row;
+
+		for (r = 0; r < height; r++) {
+			word = (tile == null) ? 0 : tile[r];
+			row = states.index(x0, y0 + r);
+			for (x = 0; x < width; x++) {
+				status = (int) ((word >>> x) & 1);
+				if (states.get(row + x) != status) {
+					states.write(row + x, status);
+					changes.markChanged(x0 + x, y0 + r);
+				}
+			}
+		}
+	}
+
+	private void stepTile(int tx, int ty) {
+		long key = Indices.pack(tx, ty);
+		int dx, dy, r;
+		long live = 0;
+
+		if (visited.containsKey(key)) {
+			return;
+		}
+		visited.put(key, 1);
+		for (dy = -1; dy <= 1; dy++) {
+			for (dx = -1; dx <= 1; dx++) {
+				around[(dy + 1) * 3 + (dx + 1)] = tiles.get(Indices.pack(tx + dx, ty + dy));
+			}
+		}
+
+		long [] result = allocate();
+		for (r = 0; r < TILE; r++) {
+			result[r] = rule.nextWord(west(r - 1), center(r - 1), east(r - 1),
+					west(r), center(r), east(r), west(r + 1), center(r + 1), east(r + 1));
+			live |= result[r];
+		}
+		if (live == 0) {
+			free.push(result);
+		}
+		else {
+			next.put(key, result);
+		}
+	}
+
+	/**
+	 * @param r a row from -1 to TILE of the tile being stepped
+	 * @param column 0 for the tiles to the west, 1 for the tile itself, 2 for the tiles to the east
+	 * @return the row, read from the tile above or below when it is outside the tile
+	 */
+	private long row(int r, int column) {
+		long [] tile;
+
+		if (r < 0) {
+			tile = around[column];
+		}
+		else if (r >= TILE) {
+			tile = around[6 + column];
+		}
+		else {
+			tile = around[3 + column];
+		}
+		return (tile == null) ? 0 : tile[r & (TILE - 1)];
+	}
+
+	private long center(int r) {
+		return row(r, 1);
+	}
+
+	private long west(int r) {
+		return (row(r, 1) << 1) | (row(r, 0) >>> (TILE - 1));
+	}
+
+	private long east(int r) {
+		return (row(r, 1) >>> 1) | (row(r, 2) << (TILE - 1));
+	}
+
+	private long [] allocate() {
+		long [] tile = free.poll();
+		if (tile == null) {
+			return new long[TILE];
+		}
+		java.util.Arrays.fill(tile, 0);
+		return tile;
+	}
+}
@@ -0,0 +1,240 @@
+package batch;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import animation.ClusterLabeler;
+import animation.Clusters;
+import animation.FireFront;
+import grid.Grid;
+import grid.ShapeGrid;
+import grid.StateBuffer;
+import util.CounterRandom;
+
+/**
+ * Runs many independent fires from a Fire simulation file without a window, for every
+ * catch probability of a sweep, and prints one CSV line per probability with the mean,
+ * standard deviation and 10/50/90% quantiles of the burned fraction and of the steps
+ * until the fire goes out. The burned fraction counts the cells that burned among the
+ * cells that were not burned at the start. The burned cells are then grouped into
+ * connected scars, giving the share of fires whose scar spans the grid and the mean size
+ * of the largest scar, as a fraction of the same cells.
+ * Trials run in parallel; each draws from its own seed derived from the seed of the file,
+ * the probability and the trial, and the results are folded in trial order, so the output
+ * does not depend on the number of threads. Every thread reuses one buffer, front and labeler.
+ * On a toroidal grid a scar spans the grid when it wraps all the way around it.
+ * Arguments: the file, the number of trials per probability (default 1000), the sweep as
+ * from:to:step (default the <prob> of the file), the shape (default Square) and the number
+ * of threads (default one per processor).
+ */
+public class FireBatch {
+
+	private static final double [] QUANTILES = {0.1, 0.5, 0.9};
+	// cells burned before the fire, kept apart so they do not join the scars
+	private static final int EMPTY = 3;
+
+	private final FireFile file;
+	private final Grid grid;
+	private final ExecutorService pool;
+	private final Worker [] workers;
+
+	/**
+	 * The buffer, front and labeler one thread reuses for all of its fires
+	 */
+	private class Worker {
+		private final StateBuffer states = StateBuffer.create(file.getXMax(), file.getYMax(), StateBuffer.HEAP, null, 3);
+		private final FireFront front = new FireFront(grid, file.getXMax(), file.getYMax());
+		private final ClusterLabeler labeler = new ClusterLabeler(grid, 1);
+		private final double [] catchChance = new double[Grid.MAX_NEIGHBORS + 1];
+
+		/**
+		 * Burns one fire to the end
+		 * @param prob the chance a burning neighbor sets an unburned cell on fire
+		 * @param seed the seed of the fire
+		 * @return the burned fraction, the number of steps, 1 if the scar spans the grid or else 0,
+		 * and the largest scar as a fraction of the cells that were not burned
+		 */
+		double [] trial(double prob, long seed) {
+			int k;
+			long i;
+			long steps = 0;
+			long unburned = 0;
+			long burned = 0;
+			CounterRandom random = new CounterRandom(seed);
+
+			for (k = 0; k < catchChance.length; k++) {
+				catchChance[k] = 1 - Math.pow(1 - prob, k);
+			}
+			for (i = 0; i < states.size(); i++) {
+				states.set(i, file.getDefaultStatus());
+			}
+			for (k = 0; k < file.getPlacedCount(); k++) {
+				states.set(file.getPlacedCell(k), file.getPlacedStatus(k));
+			}
+			for (i = 0; i < states.size(); i++) {
+				if (states.get(i) != FireFront.BURNED) {
+					unburned++;
+				}
+				else {
+					states.set(i, EMPTY);
+				}
+			}
+
+			front.load(states);
+			while (!front.isEmpty()) {
+				long step = ++steps;
+				front.step(states, (cell, burning) -> random.nextDouble(step, cell, 0) < catchChance[burning]);
+			}
+			for (i = 0; i < states.size(); i++) {
+				if (states.get(i) == FireFront.BURNED) {
+					burned++;
+				}
+			}
+			Clusters scars = labeler.label(states, FireFront.BURNED);
+			if (unburned == 0) {
+				return new double [] {0, steps, 0, 0};
+			}
+			return new double [] {(double) burned / unburned, steps, scars.percolates() ? 1 : 0,
+					(double) scars.getLargest() / unburned};
+		}
+	}
+
+	/**
+	 * Constructor of the FireBatch class.
+	 * @param file the parsed simulation file
+	 * @param grid the shape of the grid
+	 * @param threads the number of threads running trials
+	 */
+	public FireBatch(FireFile file, Grid grid, int threads) {
+		this.file = file;
+		this.grid = grid;
+		pool = Executors.newFixedThreadPool(threads);
+		workers = new Worker[threads];
+		for (int w = 0; w < threads; w++) {
+			workers[w] = new Worker();
+		}
+	}
+
+	public static void main(String [] args) throws Exception {
+		if (args.length == 0) {
+			System.err.println("Arguments: file.xml [trials] [from:to:step] [Square|Hexagon|Triangle] [threads]");
+			return;
+		}
+		FireFile file = FireFile.read(new File(args[0]));
+		int trials = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+		double [] probs = (args.length > 2) ? sweep(args[2]) : new double[] {file.getProb()};
+		Grid grid = ShapeGrid.create((args.length > 3) ? args[3] : "Square");
+		int threads = (args.length > 4) ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+		if (grid == null) {
+			throw new IllegalArgumentException("The shape must be Square, Hexagon or Triangle");
+		}
+
+		FireBatch batch = new FireBatch(file, grid, threads);
+		System.out.println("prob,trials,burned_mean,burned_sd,burned_p10,burned_p50,burned_p90,"
+				+ "steps_mean,steps_sd,steps_p10,steps_p50,steps_p90,spanning,largest_scar_mean");
+		try {
+			for (int j = 0; j < probs.length; j++) {
+				System.out.println(batch.sweepPoint(j, probs[j], trials));
+			}
+		}
+		finally {
+			batch.close();
+		}
+	}
+
+	/**
+	 * Runs the trials of one probability, every thread taking every n-th trial with its own worker
+	 * @param point the position of the probability in the sweep, which the seeds depend on
+	 * @param prob the chance a burning neighbor sets an unburned cell on fire
+	 * @param trials the number of fires
+	 * @return the CSV line of the statistics
+	 * @throws InterruptedException if the wait for the trials is interrupted
+	 * @throws ExecutionException if a trial fails
+	 */
+	public String sweepPoint(int point, double prob, int trials)
+			throws InterruptedException, ExecutionException {
+		CounterRandom seeds = new CounterRandom(file.getSeed());
+		List<Future<?>> running = new ArrayList<>();
+		double [][] results = new double[trials][];
+		RunningStats burned = new RunningStats();
+		RunningStats steps = new RunningStats();
+		RunningStats spanning = new RunningStats();
+		RunningStats largest = new RunningStats();
+		P2Quantile [] burnedQuantiles = new P2Quantile[QUANTILES.length];
+		P2Quantile [] stepsQuantiles = new P2Quantile[QUANTILES.length];
+		int k;
+
+		for (k = 0; k < QUANTILES.length; k++) {
+			burnedQuantiles[k] = new P2Quantile(QUANTILES[k]);
+			stepsQuantiles[k] = new P2Quantile(QUANTILES[k]);
+		}
+		for (int w = 0; w < workers.length; w++) {
+			Worker worker = workers[w];
+			int first = w;
+			running.add(pool.submit(() -> {
+				for (int t = first; t < trials; t += workers.length) {
+					results[t] = worker.trial(prob, seeds.nextLong(point, t, 0));
+				}
+			}));
+		}
+		for (Future<?> done : running) {
+			done.get();
+		}
+		for (double [] trial : results) {
+			burned.add(trial[0]);
+			steps.add(trial[1]);
+			spanning.add(trial[2]);
+			largest.add(trial[3]);
+			for (k = 0; k < QUANTILES.length; k++) {
+				burnedQuantiles[k].add(trial[0]);
+				stepsQuantiles[k].add(trial[1]);
+			}
+		}
+
+		StringBuilder line = new StringBuilder();
+		line.append(prob).append(',').append(trials);
+		append(line, burned, burnedQuantiles);
+		append(line, steps, stepsQuantiles);
+		line.append(',').append(spanning.getMean()).append(',').append(largest.getMean());
+		return line.toString();
+	}
+
+	/**
+	 * Stops the threads of the batch and of its labelers
+	 */
+	public void close() {
+		pool.shutdown();
+		for (Worker worker : workers) {
+			worker.labeler.close();
+		}
+	}
+
+	private static void append(StringBuilder line, RunningStats stats, P2Quantile [] quantiles) {
+		line.append(',').append(stats.getMean()).append(',').append(stats.getStandardDeviation());
+		for (P2Quantile q : quantiles) {
+			line.append(',').append(q.get());
+		}
+	}
+
+	private static double [] sweep(String spec) {
+		String [] parts = spec.split(":");
+		if (parts.length == 1) {
+			return new double[] {Double.parseDouble(parts[0])};
+		}
+		double from = Double.parseDouble(parts[0]);
+		double to = Double.parseDouble(parts[1]);
+		double step = (parts.length > 2) ? Double.parseDouble(parts[2]) : 0.1;
+		int points = (int) Math.floor((to - from) / step + 1e-9) + 1;
+		double [] probs = new double[points];
+		for (int j = 0; j < points; j++) {
+			// rounded so the steps do not print as 0.6000000000000001
+			probs[j] = Math.round((from + j * step) * 1e9) / 1e9;
+		}
+		return probs;
+	}
+}
@@ -0,0 +1,150 @@
+package batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import util.LongIntHashMap;
+
+/**
+ * Reads the grid of a Fire simulation file without the pages: its size, the default status,
+ * the cells placed by <state> elements with a <column> and a <row>, <prob> and <seed>.
+ * Colors and the other tags the window uses are ignored.
+ */
+public class FireFile extends DefaultHandler {
+
+	private int xMax;
+	private int yMax;
+	private int defaultStatus;
+	private double prob;
+	private long seed = 1;
+	private LongIntHashMap cells = new LongIntHashMap();
+	private long [] placed = new long[16];
+	private int placedCount;
+	private StringBuilder text = new StringBuilder();
+	private int state;
+	private int col = -1;
+	private int row = -1;
+
+	/**
+	 * Parses a Fire simulation file.
+	 * @param file the XML file
+	 * @return the parsed file
+	 * @throws IOException if the file cannot be read
+	 * @throws SAXException if the file is not valid XML or holds a number that is not one
+	 */
+	public static FireFile read(File file) throws IOException, SAXException {
+		FireFile fire = new FireFile();
+		try {
+			SAXParserFactory.newInstance().newSAXParser().parse(file, fire);
+		}
+		catch (ParserConfigurationException e) {
+			throw new SAXException(e);
+		}
+		catch (NumberFormatException e) {
+			throw new SAXException("Not a number in " + file + ": " + e.getMessage());
+		}
+		return fire;
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes attributes) {
+		text.setLength(0);
+		if (qName.equals("state")) {
+			state = Integer.parseInt(attributes.getValue("value").trim());
+			col = row = -1;
+		}
+	}
+
+	@Override
+	public void characters(char ch[], int start, int length) {
+		text.append(ch, start, length);
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) {
+		String value = text.toString().trim();
+		if (qName.equals("nCol")) {
+			xMax = Integer.parseInt(value);
+		}
+		else if (qName.equals("nRow")) {
+			yMax = Integer.parseInt(value);
+		}
+		else if (qName.equals("default")) {
+			defaultStatus = Integer.parseInt(value);
+		}
+		else if (qName.equals("column")) {
+			col = Integer.parseInt(value);
+		}
+		else if (qName.equals("row")) {
+			row = Integer.parseInt(value);
+		}
+		else if (qName.equals("prob")) {
+			prob = Double.parseDouble(value);
+		}
+		else if (qName.equals("seed")) {
+			seed = Long.parseLong(value);
+		}
+		else if (qName.equals("state") && (col >= 0) && (row >= 0)) {
+			long cell = (long) row * xMax + col;
+			if (!cells.containsKey(cell)) {
+				if (placedCount == placed.length) {
+					placed = Arrays.copyOf(placed, placedCount * 2);
+				}
+				placed[placedCount++] = cell;
+			}
+			cells.put(cell, state);
+		}
+		text.setLength(0);
+	}
+
+	public int getXMax() {
+		return xMax;
+	}
+
+	public int getYMax() {
+		return yMax;
+	}
+
+	public int getDefaultStatus() {
+		return defaultStatus;
+	}
+
+	public double getProb() {
+		return prob;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return the number of cells placed by the file
+	 */
+	public int getPlacedCount() {
+		return placedCount;
+	}
+
+	/**
+	 * @param k which placed cell, in the order of the file
+	 * @return the linear index of the cell
+	 */
+	public long getPlacedCell(int k) {
+		return placed[k];
+	}
+
+	/**
+	 * @param k which placed cell, in the order of the file
+	 * @return the status the file gives the cell
+	 */
+	public int getPlacedStatus(int k) {
+		return cells.get(placed[k], defaultStatus);
+	}
+}
@@ -0,0 +1,108 @@
+package batch;
+
+import java.util.Arrays;
+
+/**
+ * Estimates a quantile of a stream of values in constant memory with the P-square algorithm
+ * of Jain and Chlamtac: five markers track the minimum, the quantile, the maximum and the
+ * points halfway between, and are moved along a parabola fitted through their neighbors.
+ * The first five values are kept, so the estimate is exact until then.
+ */
+public class P2Quantile {
+
+	private final double p;
+	private final double [] heights = new double[5];
+	private final double [] positions = new double[5];
+	private final double [] desired = new double[5];
+	private final double [] increments;
+	private long count;
+
+	/**
+	 * Constructor of the P2Quantile class.
+	 * @param p the quantile, between 0 and 1
+	 */
+	public P2Quantile(double p) {
+		this.p = p;
+		increments = new double[] {0, p / 2, p, (1 + p) / 2, 1};
+	}
+
+	/**
+	 * @param x the next value
+	 */
+	public void add(double x) {
+		int i, k;
+
+		if (count < 5) {
+			heights[(int) count++] = x;
+			if (count == 5) {
+				Arrays.sort(heights);
+				for (i = 0; i < 5; i++) {
+					positions[i] = i;
+				}
+				desired[0] = 0;
+				desired[1] = 2 * p;
+				desired[2] = 4 * p;
+				desired[3] = 2 + 2 * p;
+				desired[4] = 4;
+			}
+			return;
+		}
+		count++;
+
+		// the cell between markers the value falls into, stretching the ends if needed
+		if (x < heights[0]) {
+			heights[0] = x;
+			k = 0;
+		}
+		else if (x >= heights[4]) {
+			heights[4] = x;
+			k = 3;
+		}
+		else {
+			for (k = 0; x >= heights[k + 1]; k++) {
+			}
+		}
+		for (i = k + 1; i < 5; i++) {
+			positions[i]++;
+		}
+		for (i = 0; i < 5; i++) {
+			desired[i] += increments[i];
+		}
+
+		for (i = 1; i < 4; i++) {
+			double d = desired[i] - positions[i];
+			if (((d >= 1) && (positions[i + 1] - positions[i] > 1)) || ((d <= -1) && (positions[i - 1] - positions[i] < -1))) {
+				int s = (d > 0) ? 1 : -1;
+				double h = parabolic(i, s);
+				if ((heights[i - 1] < h) && (h < heights[i + 1])) {
+					heights[i] = h;
+				}
+				else {
+					heights[i] += s * (heights[i + s] - heights[i]) / (positions[i + s] - positions[i]);
+				}
+				positions[i] += s;
+			}
+		}
+	}
+
+	/**
+	 * @return the estimate of the quantile, NaN before the first value
+	 */
+	public double get() {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		if (count < 5) {
+			double [] sorted = Arrays.copyOf(heights, (int) count);
+			Arrays.sort(sorted);
+			return sorted[(int) Math.round(p * (count - 1))];
+		}
+		return heights[2];
+	}
+
+	private double parabolic(int i, int s) {
+		return heights[i] + s / (positions[i + 1] - positions[i - 1])
+				* ((positions[i] - positions[i - 1] + s) * (heights[i + 1] - heights[i]) / (positions[i + 1] - positions[i])
+				+ (positions[i + 1] - positions[i] - s) * (heights[i] - heights[i - 1]) / (positions[i] - positions[i - 1]));
+	}
+}
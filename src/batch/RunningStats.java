@@ -0,0 +1,41 @@
+package batch;
+
+/**
+ * The mean and variance of a stream of values, updated one value at a time with
+ * Welford's method, which does not lose precision the way summing squares does.
+ */
+public class RunningStats {
+
+	private long count;
+	private double mean;
+	private double squares; // sum of squared differences from the mean
+
+	/**
+	 * @param x the next value
+	 */
+	public void add(double x) {
+		count++;
+		double delta = x - mean;
+		mean += delta / count;
+		squares += delta * (x - mean);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * @return the sample variance, 0 for fewer than two values
+	 */
+	public double getVariance() {
+		return (count > 1) ? squares / (count - 1) : 0;
+	}
+
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+}
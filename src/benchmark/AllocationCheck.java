@@ -0,0 +1,138 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import animation.Animation;
+import animation.AnimationGameOfLife;
+import animation.AnimationPredator;
+import animation.AnimationSpreadingOfFire;
+import animation.FireFront;
+import grid.StateBuffer;
+import page.Parameters;
+
+/**
+ * Checks that Game of Life, Fire and Predator steps allocate nothing on the heap, on every shape.
+ * The bytes the thread allocates are read with com.sun.management.ThreadMXBean around the steps,
+ * after warm-up steps that build the tables and buffers a simulation keeps and let the
+ * compiler finish with the step, since compiling allocates on the thread for a while.
+ * A fire is burned out once first, so its front has grown to its largest size, and the same
+ * fire is then burned again and measured; every neighbor catches, so both fires are the same.
+ * The steps run on one thread, since handing bands to a pool allocates its tasks.
+ * Fails with an IllegalStateException naming every simulation whose steps allocated.
+ * Arguments: the side of the grid and the number of steps to measure (default 200 and 50).
+ */
+public class AllocationCheck {
+
+	private static final String [] SHAPES = {"Square", "Hexagon", "Triangle"};
+	private static final int WARM_UP = 200;
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	public static void main(String [] args) {
+		int side = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+		int steps = (args.length > 1) ? Integer.parseInt(args[1]) : 50;
+		StringBuilder failed = new StringBuilder();
+
+		if (!THREADS.isThreadAllocatedMemorySupported()) {
+			throw new IllegalStateException("This JVM cannot count the bytes a thread allocates");
+		}
+		THREADS.setThreadAllocatedMemoryEnabled(true);
+		for (String shape : SHAPES) {
+			check("Game of Life " + shape, life(shape, side), steps, failed);
+			check("Fire " + shape, fire(shape, side), steps, failed);
+			check("Predator " + shape, predator(shape, side), steps, failed);
+		}
+		if (failed.length() > 0) {
+			throw new IllegalStateException("Steps allocated on the heap:" + failed);
+		}
+	}
+
+	private static void check(String name, Animation animation, int steps, StringBuilder failed) {
+		int s;
+		long bytes;
+
+		for (s = 0; s < WARM_UP; s++) {
+			animation.calculateMove();
+		}
+		if (animation instanceof AnimationSpreadingOfFire) {
+			// grow the front to its largest size, then start the same fire again
+			while (!animation.isFinished()) {
+				animation.calculateMove();
+			}
+			ignite(animation.getStateBuffer());
+		}
+		bytes = allocated();
+		for (s = 0; s < steps; ) {
+			animation.calculateMove();
+			s++;
+			if (animation.isFinished()) {
+				break;
+			}
+		}
+		bytes = allocated() - bytes;
+		System.out.printf("%s: %d bytes over %d steps%n", name, bytes, s);
+		if (bytes > 0) {
+			failed.append(' ').append(name).append(" (").append(bytes).append(" bytes)");
+		}
+		animation.close();
+	}
+
+	private static long allocated() {
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static Parameters parameters(String shape, int side) {
+		Parameters p = new Parameters();
+		p.setColNum(side);
+		p.setRowNum(side);
+		p.setCellShape(shape);
+		p.setNumberOfStatus(3);
+		p.setSeed(1);
+		p.setThreads(1);
+		return p;
+	}
+
+	private static Animation life(String shape, int side) {
+		Animation life = new AnimationGameOfLife(null, parameters(shape, side));
+		fill(life.getStateBuffer(), 2);
+		return life;
+	}
+
+	private static Animation fire(String shape, int side) {
+		Parameters p = parameters(shape, side);
+		p.setProb(1);
+		Animation fire = new AnimationSpreadingOfFire(null, p);
+		ignite(fire.getStateBuffer());
+		return fire;
+	}
+
+	private static Animation predator(String shape, int side) {
+		Parameters p = parameters(shape, side);
+		p.addSeaItem(1, 3);
+		p.addSeaItem(2, 5);
+		Animation predator = new AnimationPredator(null, p);
+		fill(predator.getStateBuffer(), 3);
+		return predator;
+	}
+
+	private static void fill(StateBuffer states, int statuses) {
+		Random random = new Random(1);
+		long i;
+
+		for (i = 0; i < states.size(); i++) {
+			states.set(i, random.nextInt(statuses));
+		}
+	}
+
+	// an unburned grid with one burning cell in the middle
+	private static void ignite(StateBuffer states) {
+		long i;
+
+		for (i = 0; i < states.size(); i++) {
+			states.set(i, FireFront.UNBURNED);
+		}
+		states.set(states.index(states.getXMax() / 2, states.getYMax() / 2), FireFront.BURNING);
+	}
+}
@@ -0,0 +1,69 @@
+package benchmark;
+
+import java.util.Random;
+
+import grid.RowKernel;
+import grid.RowKernels;
+
+/**
+ * Compares the scalar and Vector API square-grid kernels on random rows.
+ * Run with --add-modules jdk.incubator.vector and the vector source folder on the class path
+ * to include the vector kernel; the counts of both kernels are checked against each other.
+ * Arguments: the row width and the number of rows to count (default 4096 and 200000).
+ */
+public class StencilBenchmark {
+
+	private static final int STATUSES = 3;
+
+	public static void main(String [] args) {
+		int width = (args.length > 0) ? Integer.parseInt(args[0]) : 4096;
+		int rows = (args.length > 1) ? Integer.parseInt(args[1]) : 200000;
+		Random random = new Random(1);
+		byte [][] padded = new byte[3][width + 2];
+		int i, j;
+
+		for (i = 0; i < padded.length; i++) {
+			for (j = 0; j < padded[i].length; j++) {
+				padded[i][j] = (byte) random.nextInt(STATUSES);
+			}
+		}
+
+		RowKernel vector = RowKernels.loadVector();
+		int [] scalarCounts = run("scalar", RowKernels.SCALAR, padded, width, rows);
+		if (vector == null) {
+			System.out.println("vector: not available, add --add-modules jdk.incubator.vector and the vector folder");
+			return;
+		}
+		int [] vectorCounts = run("vector", vector, padded, width, rows);
+		for (i = 0; i < width; i++) {
+			if (scalarCounts[i] != vectorCounts[i]) {
+				throw new IllegalStateException("The kernels disagree at " + i);
+			}
+		}
+	}
+
+	private static int [] run(String name, RowKernel kernel, byte [][] padded, int width, int rows) {
+		int [] counts = new int[width];
+		int r;
+
+		// warm up so the timed loop is compiled
+		for (r = 0; r < rows / 10; r++) {
+			kernel.countAll(padded[0], padded[1], padded[2], 1, width, (byte) (r % STATUSES), counts, 0);
+		}
+		long start = System.nanoTime();
+		for (r = 0; r < rows; r++) {
+			kernel.countAll(padded[0], padded[1], padded[2], 1, width, (byte) (r % STATUSES), counts, 0);
+		}
+		double allSeconds = (System.nanoTime() - start) / 1e9;
+		start = System.nanoTime();
+		for (r = 0; r < rows; r++) {
+			kernel.countImmediate(padded[0], padded[1], padded[2], 1, width, (byte) (r % STATUSES), counts, 0);
+		}
+		double immediateSeconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("%s: %.0f M cells/s (8 neighbors), %.0f M cells/s (4 neighbors)%n", name,
+				(double) width * rows / allSeconds / 1e6, (double) width * rows / immediateSeconds / 1e6);
+		kernel.countAll(padded[0], padded[1], padded[2], 1, width, (byte) 1, counts, 0);
+		return counts;
+	}
+}
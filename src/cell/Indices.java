@@ -42,6 +42,23 @@ public class Indices {
         return result;
     }
     
+    /**
+     * Packs a (col, row) pair into one long, for maps keyed without allocating Indices.
+     * @param col: x index
+     * @param row: y index
+     * @return long: col in the high 32 bits, row in the low 32 bits
+     */
+    public static long pack(int col, int row) {
+        return ((long) col << 32) | (row & 0xffffffffL);
+    }
+
+    /**
+     * @return long: this pair packed like pack(col, row)
+     */
+    public long pack() {
+        return pack(col, row);
+    }
+    
     public int getX() {
 		return col;
 	}
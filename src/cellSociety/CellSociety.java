@@ -125,7 +125,8 @@ public class CellSociety {
 			Page newGameOfLifePage = new PageGameOfLife(this, language, parametersController);
 			pages.put(type, newGameOfLifePage);
 			Animation newGameOfLifeAnimation = new AnimationGameOfLife(this, parametersController);
-			animations.put(type, newGameOfLifeAnimation);
+			putAnimation(type, newGameOfLifeAnimation);
+			((GamePage) newGameOfLifePage).setStateBuffer(newGameOfLifeAnimation.getStateBuffer());
 		}
 		else if (type.equals("Segregation")){
 			String language = pages.get("Welcome").getLanguage();
@@ -133,7 +134,8 @@ public class CellSociety {
 			Page newSegregationPage = new PageSegregation(this, language, parametersController);
 			pages.put(type, newSegregationPage);
 			Animation newSegregationAnimation = new AnimationSegregation(this, parametersController); 
-			animations.put(type, newSegregationAnimation);
+			putAnimation(type, newSegregationAnimation);
+			((GamePage) newSegregationPage).setStateBuffer(newSegregationAnimation.getStateBuffer());
 		}
 		else if (type.equals("Fire")){
 			String language = pages.get("Welcome").getLanguage();
@@ -141,7 +143,8 @@ public class CellSociety {
 			Page newFirePage = new PageSpreadingOfFire(this, language, parametersController);
 			pages.put(type, newFirePage);
 			Animation newFireAnimation = new AnimationSpreadingOfFire(this, parametersController);
-			animations.put(type, newFireAnimation);
+			putAnimation(type, newFireAnimation);
+			((GamePage) newFirePage).setStateBuffer(newFireAnimation.getStateBuffer());
 		}
 		else if (type.equals("Predator")){
 			String language = pages.get("Welcome").getLanguage();
@@ -149,7 +152,8 @@ public class CellSociety {
 			Page newPredatorPage = new PagePredator(this, language, parametersController);
 			pages.put(type, newPredatorPage);
 			Animation newPredatorAnimation = new AnimationPredator(this, parametersController);
-			animations.put(type, newPredatorAnimation);
+			putAnimation(type, newPredatorAnimation);
+			((GamePage) newPredatorPage).setStateBuffer(newPredatorAnimation.getStateBuffer());
 		}
 		else if (type.equals("Slime")) {
 			String language = pages.get("Welcome").getLanguage();
@@ -157,7 +161,8 @@ public class CellSociety {
 			Page newSlimePage = new PageSlime(this, language, parametersController);
 			pages.put(type, newSlimePage);
 			Animation newSlimeAnimation = new AnimationSlime(this, parametersController);
-			animations.put(type, newSlimeAnimation);
+			putAnimation(type, newSlimeAnimation);
+			((GamePage) newSlimePage).setStateBuffer(newSlimeAnimation.getStateBuffer());
 		}
 	}
 	
@@ -191,6 +196,18 @@ public class CellSociety {
 		timeline.getKeyFrames().add(oneFrame);
 	}
 	
+	/**
+	 * The method to store the animation of a type, stopping the threads of the one it replaces.
+	 * @param type: the String to represent simulation type
+	 * @param animation: the new animation
+	 */
+	private void putAnimation(String type, Animation animation){
+		Animation old = animations.put(type, animation);
+		if (old != null){
+			old.close();
+		}
+	}
+	
 	/**
 	 * The method to start the game loop.
 	 */
@@ -205,6 +222,21 @@ public class CellSociety {
 		timeline.stop();
 	}
 	
+	/**
+	 * The method to move the current simulation straight to a later step.
+	 * Simulations that can jump ahead skip the steps in between instead of calculating each one.
+	 * @param generation: the step to move to
+	 */
+	public void jumpToGeneration(int generation){
+		GamePage page = (GamePage) pages.get(currentType);
+		if (generation > page.getCurrentStep()){
+			animations.get(currentType).advance(generation - page.getCurrentStep());
+			page.setCurrentStep(generation);
+			page.updateColorandData();
+			page.updateTextInfo();
+		}
+	}
+	
 	private void actionsPerFrame() {
 		// if the current mode is consecutive simulation
 		if (!isStep){
@@ -222,7 +254,20 @@ public class CellSociety {
 	private void detailedActions() {
 		animations.get(currentType).calculateMove();
 		((GamePage)pages.get(currentType)).setCurrentStep(((GamePage)pages.get(currentType)).getCurrentStep() + 1);
-		((GamePage) pages.get(currentType)).updateColorandData();
+		((GamePage) pages.get(currentType)).updateColorandData(animations.get(currentType).getChangedTiles());
+		if (animations.get(currentType).isFinished()) {
+			stopGameLoop();
+			if (animations.get(currentType) instanceof AnimationSpreadingOfFire) {
+				((PageSpreadingOfFire) pages.get(currentType)).setBurnScars(
+						((AnimationSpreadingOfFire) animations.get(currentType)).getBurnScars());
+			}
+		}
+		int period = animations.get(currentType).detectCycle(((GamePage)pages.get(currentType)).getCurrentStep());
+		if (period > 0) {
+			// nothing new will happen, so stop and report how often the grid repeats
+			((GamePage) pages.get(currentType)).setCyclePeriod(period);
+			stopGameLoop();
+		}
 		((GamePage) pages.get(currentType)).updateTextInfo();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package grid;
+
+/**
+ * Tracks which square tiles of the grid changed in the last step, so the next step only
+ * evaluates the tiles that could change: the ones that changed and their neighbors.
+ * A cell whose neighbors all kept their status keeps its own, so a tile is active when a
+ * tile within one tile of it changed. The tiles that changed also tell the page what to redraw.
+ * Tiles are TILE x TILE cells, and neighboring tiles wrap around on a toroidal grid.
+ */
+public class ActivityMask {
+
+	public static final int SHIFT = 5;
+	public static final int TILE = 1 << SHIFT;
+
+	private final int tilesX;
+	private final int tilesY;
+	private final boolean toroidal;
+	private boolean [] active;
+	private boolean [] changed;
+	private boolean [] pending;
+	private boolean all = true;
+
+	/**
+	 * Constructor of the ActivityMask class, with every tile active for the first step.
+	 * @param xMax the x length
+	 * @param yMax the y length
+	 * @param toroidal whether neighbors wrap around the edges of the grid
+	 */
+	public ActivityMask(int xMax, int yMax, boolean toroidal) {
+		this.tilesX = (xMax + TILE - 1) >> SHIFT;
+		this.tilesY = (yMax + TILE - 1) >> SHIFT;
+		this.toroidal = toroidal;
+		active = new boolean[tilesX * tilesY];
+		changed = new boolean[tilesX * tilesY];
+		pending = new boolean[tilesX * tilesY];
+	}
+
+	/**
+	 * Makes every tile active and changed, for when cells were edited outside the steps
+	 */
+	public void markAll() {
+		all = true;
+	}
+
+	/**
+	 * Starts a step: the active tiles are the changed tiles and their neighbors
+	 */
+	public void beginStep() {
+		int tx, ty, dx, dy;
+
+		for (ty = 0; ty < tilesY; ty++) {
+			for (tx = 0; tx < tilesX; tx++) {
+				active[ty * tilesX + tx] = all;
+				for (dy = -1; (dy <= 1) && !active[ty * tilesX + tx]; dy++) {
+					for (dx = -1; dx <= 1; dx++) {
+						if (isChanged(tx + dx, ty + dy)) {
+							active[ty * tilesX + tx] = true;
+							break;
+						}
+					}
+				}
+				pending[ty * tilesX + tx] = false;
+			}
+		}
+	}
+
+	/**
+	 * Records that a cell changed in the current step
+	 * @param x the x value of the cell
+	 * @param y the y value of the cell
+	 */
+	public void markChanged(int x, int y) {
+		pending[(y >> SHIFT) * tilesX + (x >> SHIFT)] = true;
+	}
+
+	/**
+	 * Ends a step: the tiles marked during it become the changed tiles
+	 */
+	public void endStep() {
+		boolean [] temp = changed;
+		changed = pending;
+		pending = temp;
+		all = false;
+	}
+
+	/**
+	 * @param y a row of cells
+	 * @return whether any tile the row crosses is active
+	 */
+	public boolean isRowActive(int y) {
+		int ty = y >> SHIFT;
+
+		for (int tx = 0; tx < tilesX; tx++) {
+			if (active[ty * tilesX + tx]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param tx the x value of the tile
+	 * @param ty the y value of the tile
+	 * @return whether the cells of the tile are evaluated in the current step
+	 */
+	public boolean isActive(int tx, int ty) {
+		return active[ty * tilesX + tx];
+	}
+
+	/**
+	 * @param tx the x value of the tile, wrapped or ignored past the edges
+	 * @param ty the y value of the tile, wrapped or ignored past the edges
+	 * @return whether a cell of the tile changed in the last step
+	 */
+	public boolean isChanged(int tx, int ty) {
+		if (toroidal) {
+			tx = Math.floorMod(tx, tilesX);
+			ty = Math.floorMod(ty, tilesY);
+		}
+		else if ((tx < 0) || (tx >= tilesX) || (ty < 0) || (ty >= tilesY)) {
+			return false;
+		}
+		return all || changed[ty * tilesX + tx];
+	}
+
+	public int getTilesX() {
+		return tilesX;
+	}
+
+	public int getTilesY() {
+		return tilesY;
+	}
+}
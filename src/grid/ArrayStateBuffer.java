@@ -0,0 +1,71 @@
+package grid;
+
+/**
+ * A StateBuffer on the heap, with a front array of current statuses and a back array
+ * a synchronous step writes into. The arrays are handed to the simulation loops directly.
+ * Holds at most 2^31 - 1 cells.
+ */
+public class ArrayStateBuffer extends StateBuffer {
+
+	private byte [] front;
+	private byte [] back;
+
+	/**
+	 * Constructor of the ArrayStateBuffer class, with every cell at status 0.
+	 * @param xMax the x length (number of columns)
+	 * @param yMax the y length (number of rows)
+	 */
+	public ArrayStateBuffer(int xMax, int yMax) {
+		super(xMax, yMax);
+		if (size() > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A grid on the heap holds at most " + Integer.MAX_VALUE
+					+ " cells, set <storage> to offheap, mapped or packed for " + size());
+		}
+		front = new byte[(int) size()];
+		back = new byte[front.length];
+	}
+
+	@Override
+	public int get(long index) {
+		return front[(int) index];
+	}
+
+	@Override
+	protected void store(long index, int status) {
+		front[(int) index] = (byte) status;
+	}
+
+	/**
+	 * Gives direct access to the current statuses for the simulation loops
+	 * @return the row-major array of current statuses
+	 */
+	public byte [] getFront() {
+		return front;
+	}
+
+	/**
+	 * Gives direct access to the array a synchronous step writes the next statuses into.
+	 * Its contents are whatever was left from an earlier step.
+	 * @return the row-major array of next statuses
+	 */
+	public byte [] getBack() {
+		return back;
+	}
+
+	@Override
+	public void swap() {
+		byte [] temp = front;
+		front = back;
+		back = temp;
+	}
+
+	@Override
+	public void readRow(int y, byte [] dst, int offset) {
+		System.arraycopy(front, y * getXMax(), dst, offset, getXMax());
+	}
+
+	@Override
+	public void writeNextRow(int y, byte [] src, int offset) {
+		System.arraycopy(src, offset, back, y * getXMax(), getXMax());
+	}
+}
@@ -5,6 +5,11 @@ import java.util.ArrayList;
 import cell.Indices;
 
 public interface Grid {
+	/**
+	 * The largest number of neighbors any cell can have, used to size neighbor buffers
+	 */
+	public static final int MAX_NEIGHBORS = 12;
+	
 	/**
 	 * Gets only the neighbors facing a full side of the cell
 	 * @param x the x value of the cell
@@ -16,4 +21,33 @@ public interface Grid {
 	public ArrayList <Indices> getImmediateNeighbors(int x, int y, int xMax, int yMax);
 	
 	public ArrayList <Indices> getAllNeighbors(int x, int y, int xMax, int yMax);
+	
+	/**
+	 * Writes the linear indices (y * xMax + x) of the neighbors facing a full side
+	 * of the cell into the buffer, without creating any objects
+	 * @param x the x value of the cell
+	 * @param y the y value of the cell
+	 * @param xMax the x length
+	 * @param yMax the y length
+	 * @param buffer the array the neighbors are written into, at least MAX_NEIGHBORS long
+	 * @return the number of neighbors written
+	 */
+	public int getImmediateNeighbors(int x, int y, int xMax, int yMax, int [] buffer);
+	
+	/**
+	 * Writes the linear indices (y * xMax + x) of all neighbors of the cell into
+	 * the buffer, without creating any objects
+	 * @param x the x value of the cell
+	 * @param y the y value of the cell
+	 * @param xMax the x length
+	 * @param yMax the y length
+	 * @param buffer the array the neighbors are written into, at least MAX_NEIGHBORS long
+	 * @return the number of neighbors written
+	 */
+	public int getAllNeighbors(int x, int y, int xMax, int yMax, int [] buffer);
+	
+	/**
+	 * @return whether neighbors wrap around the edges of the grid
+	 */
+	public boolean isToroidal();
 }
@@ -4,7 +4,7 @@ import java.util.ArrayList;
 
 import cell.Indices;
 
-public class HexagonGrid extends ShapeGrid implements Grid{
+public class HexagonGrid extends ShapeGrid implements Grid, StencilGrid {
 
 	public HexagonGrid(boolean t) {
 		super(t);
@@ -12,112 +12,102 @@ public class HexagonGrid extends ShapeGrid implements Grid{
 
 	@Override
 	public ArrayList<Indices> getImmediateNeighbors(int x, int y, int xMax, int yMax) {
-		ArrayList <Indices> ret = new ArrayList<Indices>();
-		boolean doThis;
+		int [] buffer = new int[MAX_NEIGHBORS];
+		return toIndices(buffer, getImmediateNeighbors(x, y, xMax, yMax, buffer), xMax);
+	}
+
+	@Override
+	public ArrayList<Indices> getAllNeighbors(int x, int y, int xMax, int yMax) {
+		return getImmediateNeighbors(x,y,xMax,yMax);
+	}
+	
+	@Override
+	public int getImmediateNeighbors(int x, int y, int xMax, int yMax, int [] buffer) {
+		int count = 0;
 		
 		if (y > 0) {
-			ret.add(new Indices(x, y-1));
+			buffer[count++] = (y-1) * xMax + x;
 		}
 		else if (getToroidal()) {
-			ret.add(new Indices(x, yMax-1));
+			buffer[count++] = (yMax-1) * xMax + x;
 		}
 		
 		if (y < (yMax-1)) {
-			ret.add(new Indices(x, y+1));
+			buffer[count++] = (y+1) * xMax + x;
 		}
 		else if (getToroidal()) {
-			ret.add(new Indices(x, 0));
+			buffer[count++] = x;
 		}
 		
 		if (x > 0) {
-			if ((x%2) == 1) {
-				ret.add(new Indices(x-1,y));
-				if (y < (yMax-1)) {
-					ret.add(new Indices(x-1, y+1));
-				}
-				else if (getToroidal()) {
-					ret.add(new Indices(x-1, 0));
-				}
-			}
-			else {
-				ret.add(new Indices(x-1, y));
-				if (y > 0) {
-					ret.add(new Indices(x-1, y-1));
-				}
-				else if (getToroidal()) {
-					ret.add(new Indices(x-1, yMax-1));
-				}
-			}
+			count = addSideColumn(x, x-1, y, xMax, yMax, buffer, count);
 		}
 		else if (getToroidal()) {
-			if ((x%2) == 1) {
-				ret.add(new Indices(xMax-1,y));
-				if (y < (yMax-1)) {
-					ret.add(new Indices(xMax-1, y+1));
-				}
-				else if (getToroidal()) {
-					ret.add(new Indices(xMax-1, 0));
-				}
-			}
-			else {
-				ret.add(new Indices(xMax-1, y));
-				if (y > 0) {
-					ret.add(new Indices(xMax-1, y-1));
-				}
-				else if (getToroidal()) {
-					ret.add(new Indices(xMax-1, yMax-1));
-				}
-			}
+			count = addSideColumn(x, xMax-1, y, xMax, yMax, buffer, count);
 		}
 		
-		
 		if (x < (xMax-1)) {
-			if ((x%2) == 1) {
-				ret.add(new Indices(x+1,y));
-				if (y < (yMax-1)) {
-					ret.add(new Indices(x+1, y+1));
-				}
-				else if (getToroidal()) {
-					ret.add(new Indices(x+1, 0));
-				}
-			}
-			else {
-				ret.add(new Indices(x+1, y));
-				if (y > 0) {
-					ret.add(new Indices(x+1, y-1));
-				}
-				else if (getToroidal()) {
-					ret.add(new Indices(x+1, yMax-1));
-				}
-			}
+			count = addSideColumn(x, x+1, y, xMax, yMax, buffer, count);
 		}
 		else if (getToroidal()) {
-			if ((x%2) == 1) {
-				ret.add(new Indices(0,y));
-				if (y < (yMax-1)) {
-					ret.add(new Indices(0, y+1));
-				}
-				else if (getToroidal()) {
-					ret.add(new Indices(0,0));
-				}
-			}
-			else {
-				ret.add(new Indices(0, y));
-				if (y > 0) {
-					ret.add(new Indices(0, y-1));
-				}
-				else if (getToroidal()) {
-					ret.add(new Indices(0, yMax-1));
-				}
-			}
-
+			count = addSideColumn(x, 0, y, xMax, yMax, buffer, count);
 		}
-		return ret;
+		return count;
 	}
 
 	@Override
-	public ArrayList<Indices> getAllNeighbors(int x, int y, int xMax, int yMax) {
-		return getImmediateNeighbors(x,y,xMax,yMax);
+	public int getAllNeighbors(int x, int y, int xMax, int yMax, int [] buffer) {
+		return getImmediateNeighbors(x, y, xMax, yMax, buffer);
+	}
+	
+	/**
+	 * Even and odd columns touch different rows, so each parity gets its own loop.
+	 */
+	@Override
+	public void countRow(PaddedRows rows, int status, boolean all, int [] counts, int offset, int from, int to) {
+		byte [] up = rows.getRow(-1);
+		byte [] mid = rows.getRow(0);
+		byte [] down = rows.getRow(1);
+		byte s = (byte) status;
+		int p;
+		
+		for (p = HALO + ((from + 1) & ~1); p < HALO + to; p += 2) {
+			counts[offset + p - HALO] = is(up[p], s) + is(down[p], s)
+					+ is(mid[p-1], s) + is(up[p-1], s) + is(mid[p+1], s) + is(up[p+1], s);
+		}
+		for (p = HALO + (from | 1); p < HALO + to; p += 2) {
+			counts[offset + p - HALO] = is(up[p], s) + is(down[p], s)
+					+ is(mid[p-1], s) + is(down[p-1], s) + is(mid[p+1], s) + is(down[p+1], s);
+		}
+	}
+	
+	private static int is(byte value, byte status) {
+		return (value == status) ? 1 : 0;
+	}
+	
+	/**
+	 * Adds the two neighbors in a column next to the cell.
+	 * Odd columns are shifted half a cell down, so they touch the row below, even columns the row above.
+	 */
+	private int addSideColumn(int x, int side, int y, int xMax, int yMax, int [] buffer, int count) {
+		buffer[count++] = y * xMax + side;
+		if ((x%2) == 1) {
+			if (y < (yMax-1)) {
+				buffer[count++] = (y+1) * xMax + side;
+			}
+			else if (getToroidal()) {
+				buffer[count++] = side;
+			}
+		}
+		else {
+			if (y > 0) {
+				buffer[count++] = (y-1) * xMax + side;
+			}
+			else if (getToroidal()) {
+				buffer[count++] = (yMax-1) * xMax + side;
+			}
+		}
+		return count;
 	}
 
 }
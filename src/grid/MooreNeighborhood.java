@@ -0,0 +1,54 @@
+package grid;
+
+/**
+ * The square of cells within a radius r in both x and y, (2r+1)^2 - 1 neighbors.
+ * Radius 1 is the same as getAllNeighbors of SquareGrid.
+ * Each count is read from a summed-area table in four lookups.
+ */
+public class MooreNeighborhood extends Neighborhood {
+
+	private int [] summed;
+
+	public MooreNeighborhood(int radius, boolean toroidal) {
+		super(radius, toroidal);
+	}
+
+	@Override
+	protected boolean covers(int dx, int dy) {
+		return true;
+	}
+
+	@Override
+	protected void resize(int paddedWidth, int paddedHeight) {
+		summed = new int[(paddedWidth + 1) * (paddedHeight + 1)];
+	}
+
+	@Override
+	protected void sumPadded(int [] padded, int xMax, int yMax, int pad, int [] counts) {
+		int px, py, x, y, cx, cy;
+		int r = getRadius();
+		int width = xMax + 2 * pad;
+		int height = yMax + 2 * pad;
+		int stride = width + 1;
+
+		// summed[(py + 1) * stride + (px + 1)] holds the total of padded over [0, px] x [0, py]
+		for (py = 0; py < height; py++) {
+			int rowTotal = 0;
+			for (px = 0; px < width; px++) {
+				rowTotal += padded[py * width + px];
+				summed[(py + 1) * stride + (px + 1)] = summed[py * stride + (px + 1)] + rowTotal;
+			}
+		}
+
+		for (y = 0; y < yMax; y++) {
+			cy = y + pad;
+			for (x = 0; x < xMax; x++) {
+				cx = x + pad;
+				counts[y * xMax + x] = summed[(cy + r + 1) * stride + (cx + r + 1)]
+						- summed[(cy - r) * stride + (cx + r + 1)]
+						- summed[(cy + r + 1) * stride + (cx - r)]
+						+ summed[(cy - r) * stride + (cx - r)];
+			}
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package grid;
+
+/**
+ * A precomputed neighbor table for one grid shape and size.
+ * Neighbors are stored in a flat array of linear cell indices (y * xMax + x),
+ * and the neighbors of cell c are found between getStart(c) and getEnd(c).
+ * The Animation stepping a grid builds its tables once and drops them when it is closed,
+ * so a table lives only as long as the simulation that uses it.
+ */
+public class NeighborTable {
+
+	private final int xMax;
+	private final int yMax;
+	private final int [] offsets;
+	private final int [] neighbors;
+
+	private NeighborTable(int xMax, int yMax, int [] offsets, int [] neighbors) {
+		this.xMax = xMax;
+		this.yMax = yMax;
+		this.offsets = offsets;
+		this.neighbors = neighbors;
+	}
+
+	/**
+	 * Builds the table of the neighbors facing a full side of each cell
+	 * @param g the grid shape
+	 * @param xMax the x length
+	 * @param yMax the y length
+	 * @return the neighbor table
+	 */
+	public static NeighborTable buildImmediateTable(Grid g, int xMax, int yMax) {
+		return build(g, xMax, yMax, false);
+	}
+
+	/**
+	 * Builds the table of all neighbors of each cell
+	 * @param g the grid shape
+	 * @param xMax the x length
+	 * @param yMax the y length
+	 * @return the neighbor table
+	 */
+	public static NeighborTable buildAllTable(Grid g, int xMax, int yMax) {
+		return build(g, xMax, yMax, true);
+	}
+
+	private static NeighborTable build(Grid g, int xMax, int yMax, boolean all) {
+		int cell;
+		int [] buffer = new int[Grid.MAX_NEIGHBORS];
+		int [] offsets = new int[xMax * yMax + 1];
+
+		for (cell = 0; cell < xMax * yMax; cell++) {
+			offsets[cell + 1] = offsets[cell] + findNeighbors(g, cell, xMax, yMax, all, buffer);
+		}
+
+		int [] neighbors = new int[offsets[xMax * yMax]];
+		for (cell = 0; cell < xMax * yMax; cell++) {
+			System.arraycopy(buffer, 0, neighbors, offsets[cell], findNeighbors(g, cell, xMax, yMax, all, buffer));
+		}
+		return new NeighborTable(xMax, yMax, offsets, neighbors);
+	}
+
+	private static int findNeighbors(Grid g, int cell, int xMax, int yMax, boolean all, int [] buffer) {
+		if (all) {
+			return g.getAllNeighbors(cell % xMax, cell / xMax, xMax, yMax, buffer);
+		}
+		return g.getImmediateNeighbors(cell % xMax, cell / xMax, xMax, yMax, buffer);
+	}
+
+	/**
+	 * Converts a pair of coordinates into the linear index used by the table
+	 * @param x the x value of the cell
+	 * @param y the y value of the cell
+	 * @return the linear index of the cell
+	 */
+	public int index(int x, int y) {
+		return y * xMax + x;
+	}
+
+	/**
+	 * @param cell the linear index of a cell
+	 * @return the first position of the cell's neighbors in the neighbors array
+	 */
+	public int getStart(int cell) {
+		return offsets[cell];
+	}
+
+	/**
+	 * @param cell the linear index of a cell
+	 * @return one past the last position of the cell's neighbors in the neighbors array
+	 */
+	public int getEnd(int cell) {
+		return offsets[cell + 1];
+	}
+
+	/**
+	 * @return the flat array of neighbor linear indices
+	 */
+	public int [] getNeighbors() {
+		return neighbors;
+	}
+
+	/**
+	 * @return the offsets array, one entry per cell plus a final end entry
+	 */
+	public int [] getOffsets() {
+		return offsets;
+	}
+
+	public int getXMax() {
+		return xMax;
+	}
+
+	public int getYMax() {
+		return yMax;
+	}
+
+	/**
+	 * @return the total number of cells in the table
+	 */
+	public int size() {
+		return xMax * yMax;
+	}
+}
@@ -0,0 +1,186 @@
+package grid;
+
+/**
+ * A square-grid neighborhood of a given radius that counts, for every cell at once,
+ * how many cells around it hold a given status.
+ * The cells equal to the status are copied into a padded 0/1 array with a halo of radius + 1
+ * (wrapped when toroidal, empty otherwise), and the subclasses sum it with prefix tables,
+ * so the cost per cell does not depend on the radius.
+ */
+public abstract class Neighborhood {
+
+	private final int radius;
+	private final boolean toroidal;
+	private int xMax;
+	private int yMax;
+	private int [] padded;
+
+	/**
+	 * Constructor of the Neighborhood class.
+	 * @param radius the largest distance of a neighbor from the cell
+	 * @param toroidal whether the neighborhood wraps around the edges of the grid
+	 */
+	public Neighborhood(int radius, boolean toroidal) {
+		this.radius = radius;
+		this.toroidal = toroidal;
+	}
+
+	/**
+	 * Makes a neighborhood from the names used in the simulation XML files.
+	 * @param type "Moore" or "VonNeumann"
+	 * @param radius the largest distance of a neighbor from the cell
+	 * @param toroidal whether the neighborhood wraps around the edges of the grid
+	 * @return the neighborhood, or null if the type is unknown
+	 */
+	public static Neighborhood create(String type, int radius, boolean toroidal) {
+		if (type.equals("Moore")) {
+			return new MooreNeighborhood(radius, toroidal);
+		}
+		else if (type.equals("VonNeumann")) {
+			return new VonNeumannNeighborhood(radius, toroidal);
+		}
+		return null;
+	}
+
+	public int getRadius() {
+		return radius;
+	}
+
+	public boolean isToroidal() {
+		return toroidal;
+	}
+
+	/**
+	 * Counts the neighbors of every cell that hold a status, not counting the cell itself.
+	 * @param states the row-major statuses of the grid
+	 * @param xMax the x length
+	 * @param yMax the y length
+	 * @param status the status to count
+	 * @param counts the array the count of each cell is written into, at its linear index
+	 */
+	public void countStates(byte [] states, int xMax, int yMax, int status, int [] counts) {
+		int i;
+		int pad = getPad();
+
+		if ((padded == null) || (this.xMax != xMax) || (this.yMax != yMax)) {
+			this.xMax = xMax;
+			this.yMax = yMax;
+			padded = new int[(xMax + 2 * pad) * (yMax + 2 * pad)];
+			resize(xMax + 2 * pad, yMax + 2 * pad);
+		}
+
+		fillPadded(states, status);
+		sumPadded(padded, xMax, yMax, pad, counts);
+
+		for (i = 0; i < states.length; i++) {
+			if (states[i] == status) {
+				counts[i]--;
+			}
+		}
+	}
+
+	/**
+	 * Writes the linear indices of the cells countStates counts around a cell, wrapped when
+	 * toroidal, so a simulation can update the counts of the neighbors of a cell that changed.
+	 * @param x the x value of the cell
+	 * @param y the y value of the cell
+	 * @param xMax the x length
+	 * @param yMax the y length
+	 * @param buffer the array the neighbors are written into, at least getMaxNeighbors() long
+	 * @return the number of neighbors written
+	 */
+	public int getNeighbors(int x, int y, int xMax, int yMax, int [] buffer) {
+		int dx, dy, nx, ny;
+		int count = 0;
+
+		for (dy = -radius; dy <= radius; dy++) {
+			for (dx = -radius; dx <= radius; dx++) {
+				if (((dx == 0) && (dy == 0)) || !covers(dx, dy)) {
+					continue;
+				}
+				nx = x + dx;
+				ny = y + dy;
+				if (toroidal) {
+					nx = Math.floorMod(nx, xMax);
+					ny = Math.floorMod(ny, yMax);
+				}
+				else if ((nx < 0) || (nx >= xMax) || (ny < 0) || (ny >= yMax)) {
+					continue;
+				}
+				buffer[count++] = ny * xMax + nx;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the length getNeighbors() needs for its buffer
+	 */
+	public int getMaxNeighbors() {
+		return (2 * radius + 1) * (2 * radius + 1);
+	}
+
+	/**
+	 * @param dx the x offset from the cell
+	 * @param dy the y offset from the cell
+	 * @return whether the cell at the offset is in the neighborhood
+	 */
+	protected abstract boolean covers(int dx, int dy);
+
+	/**
+	 * @return the width of the halo around the padded array
+	 */
+	protected int getPad() {
+		return radius + 1;
+	}
+
+	/**
+	 * Lets the subclasses allocate their prefix tables once per grid size.
+	 * @param paddedWidth the x length of the padded array
+	 * @param paddedHeight the y length of the padded array
+	 */
+	protected abstract void resize(int paddedWidth, int paddedHeight);
+
+	/**
+	 * Sums the padded array over the neighborhood of every cell, including the cell itself.
+	 * The cell (x, y) is at (x + pad, y + pad) in the padded array.
+	 * @param padded the padded 0/1 array, (xMax + 2 * pad) wide
+	 * @param xMax the x length of the grid
+	 * @param yMax the y length of the grid
+	 * @param pad the width of the halo
+	 * @param counts the array the sum of each cell is written into, at its linear index
+	 */
+	protected abstract void sumPadded(int [] padded, int xMax, int yMax, int pad, int [] counts);
+
+	private void fillPadded(byte [] states, int status) {
+		int px, py, x, y;
+		int pad = getPad();
+		int width = xMax + 2 * pad;
+		int height = yMax + 2 * pad;
+
+		for (py = 0; py < height; py++) {
+			y = py - pad;
+			if (toroidal) {
+				y = Math.floorMod(y, yMax);
+			}
+			if ((y < 0) || (y >= yMax)) {
+				for (px = 0; px < width; px++) {
+					padded[py * width + px] = 0;
+				}
+				continue;
+			}
+			for (px = 0; px < width; px++) {
+				x = px - pad;
+				if (toroidal) {
+					x = Math.floorMod(x, xMax);
+				}
+				if ((x >= 0) && (x < xMax) && (states[y * xMax + x] == status)) {
+					padded[py * width + px] = 1;
+				}
+				else {
+					padded[py * width + px] = 0;
+				}
+			}
+		}
+	}
+}
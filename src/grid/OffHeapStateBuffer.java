@@ -0,0 +1,142 @@
+package grid;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A StateBuffer outside the Java heap, so the grid size is bounded by memory and disk
+ * rather than -Xmx, and the garbage collector never scans it.
+ * Each copy of the statuses is split into chunks of whole rows, each chunk a direct
+ * or memory-mapped ByteBuffer of at most CHUNK_BYTES, so a row is always one bulk copy.
+ */
+public class OffHeapStateBuffer extends StateBuffer {
+
+	private static final int CHUNK_BYTES = 1 << 30;
+
+	private final int rowsPerChunk;
+	private ByteBuffer [] front;
+	private ByteBuffer [] back;
+
+	/**
+	 * Constructor of the OffHeapStateBuffer class, in direct memory, with every cell at status 0.
+	 * @param xMax the x length (number of columns)
+	 * @param yMax the y length (number of rows)
+	 */
+	public OffHeapStateBuffer(int xMax, int yMax) {
+		super(xMax, yMax);
+		rowsPerChunk = rowsPerChunk(xMax);
+		front = new ByteBuffer[chunkCount()];
+		back = new ByteBuffer[chunkCount()];
+		for (int c = 0; c < front.length; c++) {
+			front[c] = ByteBuffer.allocateDirect(chunkBytes(c));
+			back[c] = ByteBuffer.allocateDirect(chunkBytes(c));
+		}
+	}
+
+	/**
+	 * Constructor of the OffHeapStateBuffer class, mapped from a file holding both copies.
+	 * The pages are written back by the operating system, so the grid may be larger than memory.
+	 * @param xMax the x length (number of columns)
+	 * @param yMax the y length (number of rows)
+	 * @param path the file to map, or null for a temporary file deleted on exit
+	 */
+	public OffHeapStateBuffer(int xMax, int yMax, String path) {
+		super(xMax, yMax);
+		rowsPerChunk = rowsPerChunk(xMax);
+		front = new ByteBuffer[chunkCount()];
+		back = new ByteBuffer[chunkCount()];
+		try {
+			File file;
+			if (path == null) {
+				file = File.createTempFile("cells", ".grid");
+				file.deleteOnExit();
+			}
+			else {
+				file = new File(path);
+			}
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				FileChannel channel = raf.getChannel();
+				long position = 0;
+				raf.setLength(2 * size());
+				// the mappings stay valid after the channel is closed
+				for (int c = 0; c < front.length; c++) {
+					front[c] = map(channel, position, chunkBytes(c));
+					position += chunkBytes(c);
+				}
+				for (int c = 0; c < back.length; c++) {
+					back[c] = map(channel, position, chunkBytes(c));
+					position += chunkBytes(c);
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Cannot map the grid file: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public int get(long index) {
+		int y = (int) (index / getXMax());
+		int x = (int) (index - (long) y * getXMax());
+		return front[y / rowsPerChunk].get(offset(x, y));
+	}
+
+	@Override
+	protected void store(long index, int status) {
+		int y = (int) (index / getXMax());
+		int x = (int) (index - (long) y * getXMax());
+		front[y / rowsPerChunk].put(offset(x, y), (byte) status);
+	}
+
+	@Override
+	public int get(int x, int y) {
+		return front[y / rowsPerChunk].get(offset(x, y));
+	}
+
+	@Override
+	protected void store(int x, int y, int status) {
+		front[y / rowsPerChunk].put(offset(x, y), (byte) status);
+	}
+
+	@Override
+	public void readRow(int y, byte [] dst, int offset) {
+		front[y / rowsPerChunk].get(offset(0, y), dst, offset, getXMax());
+	}
+
+	@Override
+	public void writeNextRow(int y, byte [] src, int offset) {
+		back[y / rowsPerChunk].put(offset(0, y), src, offset, getXMax());
+	}
+
+	@Override
+	public void swap() {
+		ByteBuffer [] temp = front;
+		front = back;
+		back = temp;
+	}
+
+	private int offset(int x, int y) {
+		return (y % rowsPerChunk) * getXMax() + x;
+	}
+
+	private static int rowsPerChunk(int xMax) {
+		return Math.max(1, CHUNK_BYTES / xMax);
+	}
+
+	private int chunkCount() {
+		return (getYMax() + rowsPerChunk - 1) / rowsPerChunk;
+	}
+
+	private int chunkBytes(int c) {
+		return Math.min(rowsPerChunk, getYMax() - c * rowsPerChunk) * getXMax();
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, long position, int length) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_WRITE, position, length);
+	}
+}
@@ -0,0 +1,217 @@
+package grid;
+
+/**
+ * A StateBuffer on the heap packing 1, 2 or 4 bits per cell into longs,
+ * the fewest bits that hold the number of statuses of the simulation.
+ * Every row starts on a new word and the unused cells at the end of a row stay 0,
+ * so whole rows can be read, written, filled and counted a word at a time.
+ * Cell x of row y is in word y * getWordsPerRow() + x / getCellsPerWord(),
+ * at bit (x % getCellsPerWord()) * getBits().
+ */
+public class PackedStateBuffer extends StateBuffer {
+
+	private final int bits;
+	private final int bitShift;
+	private final int cellShift;
+	private final int cellMask;
+	private final long mask;
+	private final int wordsPerRow;
+	private long [] front;
+	private long [] back;
+
+	/**
+	 * Constructor of the PackedStateBuffer class, with every cell at status 0.
+	 * @param xMax the x length (number of columns)
+	 * @param yMax the y length (number of rows)
+	 * @param bits the bits per cell: 1, 2 or 4
+	 */
+	public PackedStateBuffer(int xMax, int yMax, int bits) {
+		super(xMax, yMax);
+		if ((bits != 1) && (bits != 2) && (bits != 4)) {
+			throw new IllegalArgumentException("A packed cell holds 1, 2 or 4 bits, not " + bits);
+		}
+		this.bits = bits;
+		bitShift = Integer.numberOfTrailingZeros(bits);
+		cellShift = 6 - bitShift;
+		cellMask = (1 << cellShift) - 1;
+		mask = (1L << bits) - 1;
+		wordsPerRow = (xMax + cellMask) >>> cellShift;
+		front = new long[Math.toIntExact((long) wordsPerRow * yMax)];
+		back = new long[front.length];
+	}
+
+	/**
+	 * @param total the number of statuses of the simulation
+	 * @return the bits per cell that hold them, or 0 if more than 4 bits are needed
+	 */
+	public static int bitsFor(int total) {
+		if (total <= 2) {
+			return 1;
+		}
+		else if (total <= 4) {
+			return 2;
+		}
+		else if (total <= 16) {
+			return 4;
+		}
+		return 0;
+	}
+
+	@Override
+	public int get(long index) {
+		int y = (int) (index / getXMax());
+		return get((int) (index - (long) y * getXMax()), y);
+	}
+
+	@Override
+	protected void store(long index, int status) {
+		int y = (int) (index / getXMax());
+		store((int) (index - (long) y * getXMax()), y, status);
+	}
+
+	@Override
+	public int get(int x, int y) {
+		return (int) ((front[word(x, y)] >>> shift(x)) & mask);
+	}
+
+	@Override
+	protected void store(int x, int y, int status) {
+		int w = word(x, y);
+		int s = shift(x);
+		front[w] = (front[w] & ~(mask << s)) | ((status & mask) << s);
+	}
+
+	@Override
+	public void readRow(int y, byte [] dst, int offset) {
+		int x, w;
+		long word = 0;
+
+		w = y * wordsPerRow;
+		for (x = 0; x < getXMax(); x++) {
+			if ((x & cellMask) == 0) {
+				word = front[w++];
+			}
+			dst[offset + x] = (byte) (word & mask);
+			word >>>= bits;
+		}
+	}
+
+	@Override
+	public void writeNextRow(int y, byte [] src, int offset) {
+		int x, w;
+		long word = 0;
+
+		w = y * wordsPerRow;
+		for (x = 0; x < getXMax(); x++) {
+			word |= (src[offset + x] & mask) << shift(x);
+			if (((x & cellMask) == cellMask) || (x == getXMax() - 1)) {
+				back[w++] = word;
+				word = 0;
+			}
+		}
+	}
+
+	@Override
+	public void swap() {
+		long [] temp = front;
+		front = back;
+		back = temp;
+	}
+
+	/**
+	 * Sets every cell to one status, a word at a time
+	 * @param status the new status of every cell
+	 */
+	public void fill(int status) {
+		int y, w;
+		long pattern = repeat(status);
+		long last = lastWordMask();
+
+		markEdited();
+		for (y = 0; y < getYMax(); y++) {
+			for (w = 0; w < wordsPerRow; w++) {
+				front[y * wordsPerRow + w] = pattern;
+			}
+			front[(y + 1) * wordsPerRow - 1] &= last;
+		}
+	}
+
+	/**
+	 * Counts the cells holding a status, a word at a time
+	 * @param status the status to count
+	 * @return the number of cells holding it
+	 */
+	public long count(int status) {
+		int i, b;
+		long total = 0;
+		long pattern = repeat(status);
+		long low = repeat(1);
+		long same;
+
+		for (i = 0; i < front.length; i++) {
+			// a field is all ones where the cell equals the status, then fold it into its lowest bit
+			same = ~(front[i] ^ pattern);
+			for (b = 1; b < bits; b <<= 1) {
+				same &= same >>> b;
+			}
+			total += Long.bitCount(same & low);
+		}
+		if (status == 0) {
+			// the unused cells at the end of each row are 0 too
+			total -= ((long) wordsPerRow * (1 << cellShift) - getXMax()) * getYMax();
+		}
+		return total;
+	}
+
+	/**
+	 * Gives direct access to the words of the current statuses for word-level simulation loops
+	 * @return the packed current statuses, getWordsPerRow() words per row
+	 */
+	public long [] getFrontWords() {
+		return front;
+	}
+
+	/**
+	 * Gives direct access to the words a synchronous step writes the next statuses into.
+	 * The unused cells at the end of each row must be left 0.
+	 * @return the packed next statuses, getWordsPerRow() words per row
+	 */
+	public long [] getBackWords() {
+		return back;
+	}
+
+	public int getBits() {
+		return bits;
+	}
+
+	public int getCellsPerWord() {
+		return 1 << cellShift;
+	}
+
+	public int getWordsPerRow() {
+		return wordsPerRow;
+	}
+
+	private int word(int x, int y) {
+		return y * wordsPerRow + (x >>> cellShift);
+	}
+
+	private int shift(int x) {
+		return (x & cellMask) << bitShift;
+	}
+
+	private long repeat(int status) {
+		long pattern = status & mask;
+		int b;
+
+		for (b = bits; b < 64; b <<= 1) {
+			pattern |= pattern << b;
+		}
+		return pattern;
+	}
+
+	private long lastWordMask() {
+		int used = getXMax() - ((wordsPerRow - 1) << cellShift);
+		return (used << bitShift) == 64 ? -1L : (1L << (used << bitShift)) - 1;
+	}
+}
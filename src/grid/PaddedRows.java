@@ -0,0 +1,99 @@
+package grid;
+
+/**
+ * A sliding window of padded rows over a StateBuffer, for stencil loops without edge checks.
+ * Every row is copied once per step into a row with a halo of ghost cells on both sides,
+ * filled by wrapping when the grid is toroidal or with a fixed boundary status otherwise.
+ * Rows above the top or below the bottom are wrapped the same way or are all boundary.
+ * The cell (x, y + dy) is at getRow(dy)[x + getHalo()] while the window is centered on row y.
+ */
+public class PaddedRows {
+
+	private final int xMax;
+	private final int yMax;
+	private final int halo;
+	private final boolean toroidal;
+	private final byte boundary;
+	private final byte [][] rows;
+	private int center;
+
+	/**
+	 * Constructor of the PaddedRows class.
+	 * @param xMax the x length
+	 * @param yMax the y length
+	 * @param halo the number of ghost cells on each side, and of rows above and below the center
+	 * @param toroidal whether ghost cells wrap around the grid
+	 * @param boundary the status of ghost cells outside a bounded grid
+	 */
+	public PaddedRows(int xMax, int yMax, int halo, boolean toroidal, int boundary) {
+		this.xMax = xMax;
+		this.yMax = yMax;
+		this.halo = halo;
+		this.toroidal = toroidal;
+		this.boundary = (byte) boundary;
+		rows = new byte[2 * halo + 1][xMax + 2 * halo];
+	}
+
+	/**
+	 * Centers the window on a row, loading every row in it
+	 * @param states the statuses to read
+	 * @param y the center row
+	 */
+	public void moveTo(StateBuffer states, int y) {
+		center = y;
+		for (int dy = -halo; dy <= halo; dy++) {
+			load(states, y + dy, getRow(dy));
+		}
+	}
+
+	/**
+	 * Moves the window one row down, loading only the row that comes into it
+	 * @param states the statuses to read
+	 */
+	public void next(StateBuffer states) {
+		center++;
+		load(states, center + halo, getRow(halo));
+	}
+
+	/**
+	 * @param dy the offset from the center row, between -halo and halo
+	 * @return the padded row
+	 */
+	public byte [] getRow(int dy) {
+		return rows[Math.floorMod(center + dy, rows.length)];
+	}
+
+	public int getHalo() {
+		return halo;
+	}
+
+	public int getXMax() {
+		return xMax;
+	}
+
+	private void load(StateBuffer states, int y, byte [] row) {
+		int k;
+
+		if (toroidal) {
+			y = Math.floorMod(y, yMax);
+		}
+		else if ((y < 0) || (y >= yMax)) {
+			for (k = 0; k < row.length; k++) {
+				row[k] = boundary;
+			}
+			return;
+		}
+
+		states.readRow(y, row, halo);
+		for (k = 0; k < halo; k++) {
+			if (toroidal) {
+				row[k] = row[halo + Math.floorMod(k - halo, xMax)];
+				row[halo + xMax + k] = row[halo + (k % xMax)];
+			}
+			else {
+				row[k] = boundary;
+				row[halo + xMax + k] = boundary;
+			}
+		}
+	}
+}
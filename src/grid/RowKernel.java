@@ -0,0 +1,27 @@
+package grid;
+
+/**
+ * Counts neighbors on a square grid for a segment of a row at once, from three padded rows
+ * of one byte per cell: the row above, the row itself and the row below.
+ * RowKernels picks the fastest implementation the running Java supports.
+ */
+public interface RowKernel {
+
+	/**
+	 * Counts the eight neighbors holding a status
+	 * @param up the padded row above
+	 * @param mid the padded row of the cells
+	 * @param down the padded row below
+	 * @param start the position in the padded rows of the first cell
+	 * @param length the number of cells
+	 * @param status the status to count
+	 * @param counts the array the counts are written into
+	 * @param offset the position in counts of the first cell
+	 */
+	public void countAll(byte [] up, byte [] mid, byte [] down, int start, int length, byte status, int [] counts, int offset);
+
+	/**
+	 * Counts the four neighbors facing a side holding a status, with the same parameters as countAll
+	 */
+	public void countImmediate(byte [] up, byte [] mid, byte [] down, int start, int length, byte status, int [] counts, int offset);
+}
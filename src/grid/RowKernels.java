@@ -0,0 +1,40 @@
+package grid;
+
+/**
+ * Picks the RowKernel for this run. The Vector API kernel, VectorRowKernel, lives in the
+ * vector source folder because it needs --add-modules jdk.incubator.vector to compile and run;
+ * it is loaded by name, so without it on the class path or without the module the scalar kernel is used.
+ * Setting the system property cellsociety.scalar to true also forces the scalar kernel.
+ */
+public class RowKernels {
+
+	public static final RowKernel SCALAR = new ScalarRowKernel();
+	private static final RowKernel BEST = load();
+
+	private RowKernels() {
+	}
+
+	/**
+	 * @return the fastest kernel available
+	 */
+	public static RowKernel get() {
+		return BEST;
+	}
+
+	/**
+	 * @return the Vector API kernel, or null if it cannot be loaded
+	 */
+	public static RowKernel loadVector() {
+		try {
+			return (RowKernel) Class.forName("grid.VectorRowKernel").getDeclaredConstructor().newInstance();
+		}
+		catch (Exception | LinkageError e) {
+			return null;
+		}
+	}
+
+	private static RowKernel load() {
+		RowKernel vector = Boolean.getBoolean("cellsociety.scalar") ? null : loadVector();
+		return (vector == null) ? SCALAR : vector;
+	}
+}
@@ -0,0 +1,34 @@
+package grid;
+
+/**
+ * The RowKernel of plain Java loops, used when the Vector API is not available.
+ * The comparisons compile to conditional moves, so the loops have no data-dependent branches.
+ */
+public class ScalarRowKernel implements RowKernel {
+
+	@Override
+	public void countAll(byte [] up, byte [] mid, byte [] down, int start, int length, byte status, int [] counts, int offset) {
+		int i, p;
+
+		for (i = 0; i < length; i++) {
+			p = start + i;
+			counts[offset + i] = is(up[p-1], status) + is(up[p], status) + is(up[p+1], status)
+					+ is(mid[p-1], status) + is(mid[p+1], status)
+					+ is(down[p-1], status) + is(down[p], status) + is(down[p+1], status);
+		}
+	}
+
+	@Override
+	public void countImmediate(byte [] up, byte [] mid, byte [] down, int start, int length, byte status, int [] counts, int offset) {
+		int i, p;
+
+		for (i = 0; i < length; i++) {
+			p = start + i;
+			counts[offset + i] = is(up[p], status) + is(mid[p-1], status) + is(mid[p+1], status) + is(down[p], status);
+		}
+	}
+
+	private static int is(byte value, byte status) {
+		return (value == status) ? 1 : 0;
+	}
+}
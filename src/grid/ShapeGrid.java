@@ -1,5 +1,9 @@
 package grid;
 
+import java.util.ArrayList;
+
+import cell.Indices;
+
 public abstract class ShapeGrid {
 
 	private boolean toroidal;
@@ -8,6 +12,24 @@ public abstract class ShapeGrid {
 		toroidal = t;
 	}
 	
+	/**
+	 * Makes the grid of a shape named in the configuration files
+	 * @param shape "Square", "Hexagon" or "Triangle"
+	 * @return the grid, or null if the shape is unknown
+	 */
+	public static Grid create (String shape) {
+		if (shape.equals("Square")) {
+			return new SquareGrid(true);
+		}
+		else if (shape.equals("Hexagon")) {
+			return new HexagonGrid(false);
+		}
+		else if (shape.equals("Triangle")) {
+			return new TriangleGrid(false);
+		}
+		return null;
+	}
+	
 	/**
 	 * Allows subclasses to see the value of toroidal
 	 * @return a boolean telling whether the program should work toroidally
@@ -15,4 +37,28 @@ public abstract class ShapeGrid {
 	protected boolean getToroidal () {
 		return toroidal;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Allows other classes to see the value of toroidal
+	 * @return a boolean telling whether the program should work toroidally
+	 */
+	public boolean isToroidal () {
+		return toroidal;
+	}
+	
+	/**
+	 * Turns neighbors written by the primitive methods back into a list of indices
+	 * @param buffer the linear indices of the neighbors
+	 * @param count the number of neighbors in the buffer
+	 * @param xMax the x length
+	 * @return the neighbors in an arraylist
+	 */
+	protected ArrayList <Indices> toIndices (int [] buffer, int count, int xMax) {
+		ArrayList <Indices> ret = new ArrayList<Indices>();
+		
+		for (int k = 0; k < count; k++) {
+			ret.add(new Indices(buffer[k] % xMax, buffer[k] / xMax));
+		}
+		return ret;
+	}
+}
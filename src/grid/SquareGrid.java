@@ -4,80 +4,98 @@ import java.util.ArrayList;
 
 import cell.Indices;
 
-public class SquareGrid extends ShapeGrid implements Grid {
+public class SquareGrid extends ShapeGrid implements Grid, StencilGrid {
+	
+	private static final RowKernel KERNEL = RowKernels.get();
 	
 	public SquareGrid(boolean t) {
 		super(t);
 	}
 
 	public ArrayList<Indices> getImmediateNeighbors(int x, int y, int xMax, int yMax) {
-		ArrayList <Indices> ret = new ArrayList<Indices>();
+		int [] buffer = new int[MAX_NEIGHBORS];
+		return toIndices(buffer, getImmediateNeighbors(x, y, xMax, yMax, buffer), xMax);
+	}
+
+	
+	public ArrayList<Indices> getAllNeighbors(int x, int y, int xMax, int yMax) {
+		int [] buffer = new int[MAX_NEIGHBORS];
+		return toIndices(buffer, getAllNeighbors(x, y, xMax, yMax, buffer), xMax);
+	}
+	
+	public int getImmediateNeighbors(int x, int y, int xMax, int yMax, int [] buffer) {
+		int count = 0;
 		
 		if (x > 0) {
-			ret.add(new Indices(x-1, y));
+			buffer[count++] = y * xMax + (x-1);
 		}
 		else if (getToroidal()) {
-			ret.add(new Indices(xMax-1, y));
+			buffer[count++] = y * xMax + (xMax-1);
 		}
 		
 		if (y > 0) {
-			ret.add(new Indices(x, y-1));
+			buffer[count++] = (y-1) * xMax + x;
 		}
 		else if (getToroidal()) {
-			ret.add(new Indices(x, yMax-1));
+			buffer[count++] = (yMax-1) * xMax + x;
 		}
 		
 		if (x < (xMax-1)) {
-			ret.add(new Indices(x+1, y));
+			buffer[count++] = y * xMax + (x+1);
 		}
 		else if (getToroidal()) {
-			ret.add(new Indices(0, y));
+			buffer[count++] = y * xMax;
 		}
 		
 		if (y < (yMax -1)) {
-			ret.add(new Indices(x, y+1));
+			buffer[count++] = (y+1) * xMax + x;
 		}
 		else if (getToroidal()) {
-			ret.add(new Indices(x, 0));
+			buffer[count++] = x;
 		}
 		
-		return ret;
+		return count;
 	}
-
 	
-	public ArrayList<Indices> getAllNeighbors(int x, int y, int xMax, int yMax) {
-		ArrayList<Indices> ret = getImmediateNeighbors(x, y, xMax, yMax);
+	public int getAllNeighbors(int x, int y, int xMax, int yMax, int [] buffer) {
+		int count = getImmediateNeighbors(x, y, xMax, yMax, buffer);
 		
-		if ((x > 0) && (y > 0)) {
-			ret.add(new Indices(x-1,y-1));
+		if (((x > 0) && (y > 0)) || getToroidal()) {
+			buffer[count++] = wrap(y-1, yMax) * xMax + wrap(x-1, xMax);
 		}
-		else if (getToroidal()) {
-			ret.add(new Indices(xMax-1, yMax-1));
+		
+		if (((x > 0) && (y < (yMax-1))) || getToroidal()) {
+			buffer[count++] = wrap(y+1, yMax) * xMax + wrap(x-1, xMax);
 		}
 		
-		if ((x > 0) && (y < (yMax-1))) {
-			ret.add(new Indices(x-1,y+1));
+		if (((x < (xMax -1)) && (y > 0)) || getToroidal()) {
+			buffer[count++] = wrap(y-1, yMax) * xMax + wrap(x+1, xMax);
 		}
-		else if (getToroidal()) {
-			ret.add(new Indices(xMax-1, 0));
+		
+		if (((x < (xMax -1)) && (y < (yMax -1))) || getToroidal()) {
+			buffer[count++] = wrap(y+1, yMax) * xMax + wrap(x+1, xMax);
 		}
 		
-		if ((x < (xMax -1)) && (y > 0)) {
-			ret.add(new Indices(x+1, y -1));
+		return count;
+	}
+	
+	public void countRow(PaddedRows rows, int status, boolean all, int [] counts, int offset, int from, int to) {
+		if (all) {
+			KERNEL.countAll(rows.getRow(-1), rows.getRow(0), rows.getRow(1), HALO + from, to - from, (byte) status, counts, offset + from);
 		}
-		else if (getToroidal()) {
-			ret.add(new Indices(0, yMax-1));
+		else {
+			KERNEL.countImmediate(rows.getRow(-1), rows.getRow(0), rows.getRow(1), HALO + from, to - from, (byte) status, counts, offset + from);
 		}
-		
-		if ((x < (xMax -1)) && (y < (yMax -1))) {
-			ret.add(new Indices(x+1,y+1));
+	}
+	
+	private int wrap(int value, int max) {
+		if (value < 0) {
+			return max - 1;
 		}
-		else if (getToroidal()) {
-			ret.add(new Indices(0,0));
+		if (value >= max) {
+			return 0;
 		}
-		
-		return ret;
+		return value;
 	}
-
 	
 }
@@ -0,0 +1,182 @@
+package grid;
+
+/**
+ * The statuses of every cell in a simulation, one byte per cell in row-major order.
+ * A cell at (x, y) lives at the linear index y * xMax + x, the same index used by NeighborTable.
+ * The buffer is owned by the Animation, which steps it, and read by the GamePage to draw cells.
+ * It holds the current statuses and a second copy a synchronous step writes the next statuses into;
+ * swap() makes the second copy current without copying, so stepping never allocates.
+ * Indices are longs so that storage outside the heap can hold more than 2^31 cells.
+ * Only the steps of Fire and Game of Life go past that limit: the page draws a JavaFX node
+ * for every cell, and the other simulations, the cluster labeler and the fire batch keep
+ * int-indexed arrays per cell, so grids that large are stepped through an Animation without the page.
+ */
+public abstract class StateBuffer {
+
+	public static final String HEAP = "heap";
+	public static final String OFF_HEAP = "offheap";
+	public static final String MAPPED = "mapped";
+	public static final String PACKED = "packed";
+
+	private final int xMax;
+	private final int yMax;
+	private int edits;
+
+	/**
+	 * Constructor of the StateBuffer class.
+	 * @param xMax the x length (number of columns)
+	 * @param yMax the y length (number of rows)
+	 */
+	protected StateBuffer(int xMax, int yMax) {
+		this.xMax = xMax;
+		this.yMax = yMax;
+	}
+
+	/**
+	 * Makes a buffer with every cell at status 0 in the storage named in the configuration file.
+	 * A PACKED buffer uses the fewest bits per cell that hold total statuses,
+	 * or one byte per cell when there are more than 16.
+	 * @param xMax the x length
+	 * @param yMax the y length
+	 * @param storage HEAP, OFF_HEAP, MAPPED or PACKED; null means HEAP
+	 * @param file the file a MAPPED buffer lives in, or null for a temporary file
+	 * @param total the number of statuses of the simulation
+	 * @return the buffer
+	 */
+	public static StateBuffer create(int xMax, int yMax, String storage, String file, int total) {
+		if (PACKED.equals(storage) && (PackedStateBuffer.bitsFor(total) > 0)) {
+			return new PackedStateBuffer(xMax, yMax, PackedStateBuffer.bitsFor(total));
+		}
+		else if (OFF_HEAP.equals(storage)) {
+			return new OffHeapStateBuffer(xMax, yMax);
+		}
+		else if (MAPPED.equals(storage)) {
+			return new OffHeapStateBuffer(xMax, yMax, file);
+		}
+		return new ArrayStateBuffer(xMax, yMax);
+	}
+
+	/**
+	 * @param index the linear index of the cell
+	 * @return the current status of the cell
+	 */
+	public abstract int get(long index);
+
+	/**
+	 * Writes a status into the current statuses, counted as an edit
+	 * @param index the linear index of the cell
+	 * @param status the new current status of the cell
+	 */
+	public final void set(long index, int status) {
+		edits++;
+		store(index, status);
+	}
+
+	/**
+	 * Writes a status into the current statuses as part of a step, not counted as an edit,
+	 * for simulations that change a few cells in place and report the tiles they changed
+	 * @param index the linear index of the cell
+	 * @param status the new current status of the cell
+	 */
+	public final void write(long index, int status) {
+		store(index, status);
+	}
+
+	/**
+	 * Writes a status into the current statuses
+	 * @param index the linear index of the cell
+	 * @param status the new current status of the cell
+	 */
+	protected abstract void store(long index, int status);
+
+	/**
+	 * Writes a status into the current statuses
+	 * @param x the x value of the cell
+	 * @param y the y value of the cell
+	 * @param status the new current status of the cell
+	 */
+	protected void store(int x, int y, int status) {
+		store(index(x, y), status);
+	}
+
+	/**
+	 * Copies a row of current statuses into an array
+	 * @param y the row to copy
+	 * @param dst the array to copy into
+	 * @param offset the position in dst of the cell at x = 0
+	 */
+	public abstract void readRow(int y, byte [] dst, int offset);
+
+	/**
+	 * Writes a row of next statuses, which become current at the next swap()
+	 * @param y the row to write
+	 * @param src the array to copy from
+	 * @param offset the position in src of the cell at x = 0
+	 */
+	public abstract void writeNextRow(int y, byte [] src, int offset);
+
+	/**
+	 * Makes the next statuses current, by swapping the two copies by reference
+	 */
+	public abstract void swap();
+
+	/**
+	 * @param x the x value of the cell
+	 * @param y the y value of the cell
+	 * @return the status of the cell
+	 */
+	public int get(int x, int y) {
+		return get(index(x, y));
+	}
+
+	/**
+	 * @param x the x value of the cell
+	 * @param y the y value of the cell
+	 * @param status the new status of the cell
+	 */
+	public final void set(int x, int y, int status) {
+		edits++;
+		store(x, y, status);
+	}
+
+	/**
+	 * Counts the calls to set(), so a simulation can tell when cells were edited between its steps.
+	 * Writes through the arrays or rows of a step are not counted.
+	 * @return the number of edits so far
+	 */
+	public int getEdits() {
+		return edits;
+	}
+
+	/**
+	 * Lets bulk writes of the subclasses count as an edit
+	 */
+	protected void markEdited() {
+		edits++;
+	}
+
+	/**
+	 * Converts a pair of coordinates into a linear index
+	 * @param x the x value of the cell
+	 * @param y the y value of the cell
+	 * @return the linear index of the cell
+	 */
+	public long index(int x, int y) {
+		return (long) y * xMax + x;
+	}
+
+	public int getXMax() {
+		return xMax;
+	}
+
+	public int getYMax() {
+		return yMax;
+	}
+
+	/**
+	 * @return the total number of cells
+	 */
+	public long size() {
+		return (long) xMax * yMax;
+	}
+}
@@ -0,0 +1,25 @@
+package grid;
+
+/**
+ * A grid shape whose neighbors are fixed offsets in padded rows,
+ * so neighbor counts can be taken a whole row at a time without edge checks.
+ */
+public interface StencilGrid {
+	/**
+	 * The number of ghost cells the shape needs around each row
+	 */
+	public static final int HALO = 1;
+
+	/**
+	 * Counts, for the cells from x = from to x = to - 1 of the center row of the window,
+	 * the neighbors holding a status
+	 * @param rows the padded rows, centered on the row to count
+	 * @param status the status to count
+	 * @param all whether to count all neighbors or only the ones facing a full side
+	 * @param counts the array the counts are written into, the count of x at offset + x
+	 * @param offset the position in counts of the cell at x = 0
+	 * @param from the first x to count
+	 * @param to the x after the last one to count
+	 */
+	public void countRow(PaddedRows rows, int status, boolean all, int [] counts, int offset, int from, int to);
+}
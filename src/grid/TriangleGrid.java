@@ -2,11 +2,25 @@ package grid;
 
 import java.util.ArrayList;
 
-//currently not functional
-
 import cell.Indices;
 
+/**
+ * Neighbors for a grid of alternating triangles.
+ * The cell (x, y) points up when x + y is even and down otherwise, so toroidal
+ * triangle grids need an even number of columns and rows to tile consistently.
+ * Each orientation has a fixed table of (dx, dy) offsets: three edge neighbors,
+ * and nine more that only share a vertex, for twelve in total.
+ */
 public class TriangleGrid extends ShapeGrid implements Grid {
+	
+	private static final int [][] UP_EDGE = {{-1, 0}, {1, 0}, {0, 1}};
+	private static final int [][] DOWN_EDGE = {{-1, 0}, {1, 0}, {0, -1}};
+	private static final int [][] UP_VERTEX = {{-2, 0}, {2, 0}, 
+			{-1, -1}, {0, -1}, {1, -1}, 
+			{-2, 1}, {-1, 1}, {1, 1}, {2, 1}};
+	private static final int [][] DOWN_VERTEX = {{-2, 0}, {2, 0}, 
+			{-2, -1}, {-1, -1}, {1, -1}, {2, -1}, 
+			{-1, 1}, {0, 1}, {1, 1}};
 
 	public TriangleGrid(boolean t) {
 		super(t);
@@ -14,17 +28,57 @@ public class TriangleGrid extends ShapeGrid implements Grid {
 
 	@Override
 	public ArrayList<Indices> getImmediateNeighbors(int x, int y, int xMax, int yMax) {
-		ArrayList<Indices> ret = new ArrayList<Indices>();
-		
-		
-		return ret;
+		int [] buffer = new int[MAX_NEIGHBORS];
+		return toIndices(buffer, getImmediateNeighbors(x, y, xMax, yMax, buffer), xMax);
 	}
 
 	@Override
 	public ArrayList<Indices> getAllNeighbors(int x, int y, int xMax, int yMax) {
-		ArrayList<Indices> ret = getImmediateNeighbors(x,y,xMax,yMax);
-		return ret;
+		int [] buffer = new int[MAX_NEIGHBORS];
+		return toIndices(buffer, getAllNeighbors(x, y, xMax, yMax, buffer), xMax);
 	}
 
+	@Override
+	public int getImmediateNeighbors(int x, int y, int xMax, int yMax, int [] buffer) {
+		if (isUp(x, y)) {
+			return addOffsets(UP_EDGE, x, y, xMax, yMax, buffer, 0);
+		}
+		return addOffsets(DOWN_EDGE, x, y, xMax, yMax, buffer, 0);
+	}
+
+	@Override
+	public int getAllNeighbors(int x, int y, int xMax, int yMax, int [] buffer) {
+		int count = getImmediateNeighbors(x, y, xMax, yMax, buffer);
+		
+		if (isUp(x, y)) {
+			return addOffsets(UP_VERTEX, x, y, xMax, yMax, buffer, count);
+		}
+		return addOffsets(DOWN_VERTEX, x, y, xMax, yMax, buffer, count);
+	}
+	
+	/**
+	 * @param x the x value of the cell
+	 * @param y the y value of the cell
+	 * @return whether the triangle at the cell points up
+	 */
+	public static boolean isUp(int x, int y) {
+		return ((x + y) % 2) == 0;
+	}
+	
+	private int addOffsets(int [][] offsets, int x, int y, int xMax, int yMax, int [] buffer, int count) {
+		int nx, ny;
+		
+		for (int k = 0; k < offsets.length; k++) {
+			nx = x + offsets[k][0];
+			ny = y + offsets[k][1];
+			if ((nx >= 0) && (nx < xMax) && (ny >= 0) && (ny < yMax)) {
+				buffer[count++] = ny * xMax + nx;
+			}
+			else if (getToroidal()) {
+				buffer[count++] = ((ny + yMax) % yMax) * xMax + ((nx + xMax) % xMax);
+			}
+		}
+		return count;
+	}
 	
 }
@@ -0,0 +1,99 @@
+package grid;
+
+/**
+ * The diamond of cells with |dx| + |dy| <= r, 2r(r+1) neighbors.
+ * Radius 1 is the same as getImmediateNeighbors of SquareGrid.
+ * Moving the diamond one cell right (or down) adds one diagonal edge and removes another,
+ * and every diagonal edge is read from a prefix table along that diagonal in two lookups.
+ */
+public class VonNeumannNeighborhood extends Neighborhood {
+
+	// down-right running sums: down[x][y] = padded[x][y] + down[x-1][y-1]
+	private int [] down;
+	// down-left running sums: left[x][y] = padded[x][y] + left[x+1][y-1]
+	private int [] left;
+	private int width;
+
+	public VonNeumannNeighborhood(int radius, boolean toroidal) {
+		super(radius, toroidal);
+	}
+
+	@Override
+	protected boolean covers(int dx, int dy) {
+		return Math.abs(dx) + Math.abs(dy) <= getRadius();
+	}
+
+	@Override
+	protected void resize(int paddedWidth, int paddedHeight) {
+		down = new int[paddedWidth * paddedHeight];
+		left = new int[paddedWidth * paddedHeight];
+	}
+
+	@Override
+	protected void sumPadded(int [] padded, int xMax, int yMax, int pad, int [] counts) {
+		int px, py, x, y, c, cy, total, first;
+		int r = getRadius();
+		int height = yMax + 2 * pad;
+		width = xMax + 2 * pad;
+
+		for (py = 0; py < height; py++) {
+			for (px = 0; px < width; px++) {
+				down[py * width + px] = padded[py * width + px];
+				left[py * width + px] = padded[py * width + px];
+				if (py > 0) {
+					if (px > 0) {
+						down[py * width + px] += down[(py - 1) * width + (px - 1)];
+					}
+					if (px < width - 1) {
+						left[py * width + px] += left[(py - 1) * width + (px + 1)];
+					}
+				}
+			}
+		}
+
+		first = enumerate(padded, pad, pad);
+		for (y = 0; y < yMax; y++) {
+			cy = y + pad;
+			if (y > 0) {
+				c = pad;
+				// slide the first diamond of the row one cell down
+				first += down(c, cy + r) - down(c - r - 1, cy - 1)
+						+ left(c + 1, cy + r - 1) - left(c + r + 1, cy - 1)
+						- left(c - r, cy - 1) + left(c + 1, cy - r - 2)
+						- down(c + r, cy - 1) + down(c, cy - r - 1);
+			}
+			total = first;
+			counts[y * xMax] = total;
+			for (x = 1; x < xMax; x++) {
+				c = x + pad - 1;
+				// slide the diamond one cell right
+				total += down(c + 1 + r, cy) - down(c, cy - r - 1)
+						+ left(c + 1, cy + r) - left(c + r + 1, cy)
+						- left(c - r, cy) + left(c + 1, cy - r - 1)
+						- down(c, cy + r) + down(c - r, cy);
+				counts[y * xMax + x] = total;
+			}
+		}
+	}
+
+	private int down(int x, int y) {
+		return down[y * width + x];
+	}
+
+	private int left(int x, int y) {
+		return left[y * width + x];
+	}
+
+	private int enumerate(int [] padded, int cx, int cy) {
+		int dx, dy;
+		int r = getRadius();
+		int total = 0;
+
+		for (dy = -r; dy <= r; dy++) {
+			for (dx = -(r - Math.abs(dy)); dx <= r - Math.abs(dy); dx++) {
+				total += padded[(cy + dy) * width + (cx + dx)];
+			}
+		}
+		return total;
+	}
+}
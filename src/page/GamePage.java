@@ -6,6 +6,8 @@ import java.util.Map;
 import cell.Cell;
 import cell.Indices;
 import cellSociety.CellSociety;
+import grid.ActivityMask;
+import grid.StateBuffer;
 import javafx.event.ActionEvent;
 import javafx.scene.Group;
 import javafx.scene.Node;
@@ -16,8 +18,10 @@ import javafx.scene.chart.XYChart;
 import javafx.scene.chart.XYChart.Data;
 import javafx.scene.chart.XYChart.Series;
 import javafx.scene.control.Button;
+import javafx.scene.control.TextField;
 import javafx.scene.paint.Color;
 import util.DisplayAlert;
+import util.LongObjectHashMap;
 
 /**
  * The abstract subclass of Page, and super class of all specific pages for simulations.
@@ -26,12 +30,16 @@ import util.DisplayAlert;
  */
 public abstract class GamePage extends Page {
 	private Group grid;
-	private Map<Indices, Cell> cells;
+	private LongObjectHashMap<Cell> cells;
+	private StateBuffer states;
 	private int currentStep;
+	private int cyclePeriod;
 	private Button back;
 	private Button start;
 	private Button stop;
 	private Button step;	
+	private Button jump;
+	private TextField jumpTarget;
 	private Boolean layoutSelected = false;
 	private BarChart<Number, String> populationChart;
 	private NumberAxis xAxis;
@@ -52,11 +60,15 @@ public abstract class GamePage extends Page {
 		xAxis = new NumberAxis();
 		yAxis = new CategoryAxis();
 		populationChart = new BarChart<Number,String>(xAxis,yAxis);
-		cells = new HashMap<Indices, Cell>();
+		cells = new LongObjectHashMap<Cell>();
 		back = createButton(getMyResources().getString("BackCommand"), event-> backButton(event));
 		start = createButton(getMyResources().getString("StartCommand"), event-> startButton(event));
 		stop = createButton(getMyResources().getString("StopCommand"), event-> stopButton(event));
 		step = createButton(getMyResources().getString("StepCommand"), event-> stepButton(event));
+		jump = createButton(getMyResources().getString("JumpCommand"), event-> jumpButton(event));
+		jumpTarget = new TextField();
+		jumpTarget.setPromptText(getMyResources().getString("JumpPrompt"));
+		jumpTarget.setPrefColumnCount(8);
 		quantityMap = new HashMap<Color, Integer>();
 	}
 
@@ -71,7 +83,25 @@ public abstract class GamePage extends Page {
 	 * @return Cell
 	 */
 	public Cell getCell(int col, int row){
-		return cells.get(new Indices(col, row));
+		return cells.get(Indices.pack(col, row));
+	}
+	
+	/**
+	 * The method to get the buffer holding the status of every cell.
+	 * The buffer is owned by the animation of the simulation and only read by the page.
+	 * @return StateBuffer
+	 */
+	public StateBuffer getStateBuffer(){
+		return states;
+	}
+	
+	/**
+	 * The method to set the buffer holding the status of every cell.
+	 * Called by CellSociety when the page and its animation are created.
+	 * @param s: the state buffer of the animation
+	 */
+	public void setStateBuffer(StateBuffer s){
+		states = s;
 	}
 	
 	/**
@@ -91,6 +121,23 @@ public abstract class GamePage extends Page {
 		currentStep = step;
 	}		
 	
+	/**
+	 * The method to return the period of the cycle the simulation is in.
+	 * @return int, 0 if no cycle was found
+	 */
+	public int getCyclePeriod () {
+		return cyclePeriod;
+	}
+	
+	/**
+	 * The method to set the period of the cycle the simulation is in.
+	 * Called by the game loop in CellSociety when the grid repeats.
+	 * @param period: number of steps between repeats, 0 for none
+	 */
+	public void setCyclePeriod(int period){
+		cyclePeriod = period;
+	}
+	
 	protected Button getStart(){
 		return start;
 	}
@@ -107,6 +154,14 @@ public abstract class GamePage extends Page {
 		return back;
 	}
 	
+	protected Button getJump(){
+		return jump;
+	}
+	
+	protected TextField getJumpTarget(){
+		return jumpTarget;
+	}
+	
 	/**
 	 * The method to get the status of a cell at a given location.
 	 * The method will be override by sub classes for different implementations.
@@ -125,8 +180,8 @@ public abstract class GamePage extends Page {
 	 * @param c: the Cell instant
 	 */
 	protected void addCell(int col, int row, Cell c) {
-		Indices newKey = new Indices(col, row);
-		cells.put(newKey, c);
+		cells.put(Indices.pack(col, row), c);
+		states.set(col, row, c.getStatus());
 	}
 	
 	/**
@@ -159,11 +214,22 @@ public abstract class GamePage extends Page {
 	 * Updates the color and the display of the Bar Graph on each step.
 	 */
 	public void updateColorandData () {
+		updateColorandData(null);
+	}
+	
+	/**
+	 * Updates the Bar Graph, redrawing only the cells in tiles that changed in the last step.
+	 * @param changed: the tiles changed in the last step, or null to redraw every cell
+	 */
+	public void updateColorandData (ActivityMask changed) {
 		int i, j;
-		for (i = 0; i < this.getParametersController().getRow(); i++) {
-			for (j = 0; j < this.getParametersController().getCol(); j++) {
-				Color color = this.getParametersController().getColor(getCell(i,j).getStatus());
-				getCell(i,j).changeColor(this.getParametersController().getColor(getCell(i,j).getStatus()));
+		for (i = 0; i < this.getParametersController().getCol(); i++) {
+			for (j = 0; j < this.getParametersController().getRow(); j++) {
+				Color color = this.getParametersController().getColor(states.get(i,j));
+				if ((changed == null) || changed.isChanged(i >> ActivityMask.SHIFT, j >> ActivityMask.SHIFT)) {
+					getCell(i,j).changeStatus(states.get(i,j));
+					getCell(i,j).changeColor(color);
+				}
 				this.quantityMap.put(color, this.quantityMap.get(color)+1);	
 			}	
 		}
@@ -242,4 +308,23 @@ public abstract class GamePage extends Page {
 			this.getCellSociety().beginGameLoop();
 		}	
 	}
+	/**
+	 * The handler of the "JUMP" button.
+	 * When the button is pressed, the simulation stops and moves straight to the step typed in the field.
+	 * @param event
+	 */
+	private void jumpButton(ActionEvent event){
+		if (!layoutSelected){
+			DisplayAlert.displayAlert(getMyResources().getString("SelectCommand"));
+			return;
+		}
+		try {
+			int generation = Integer.parseInt(jumpTarget.getText().trim());
+			this.getCellSociety().stopGameLoop();
+			this.getCellSociety().jumpToGeneration(generation);
+		}
+		catch (NumberFormatException e){
+			DisplayAlert.displayAlert(getMyResources().getString("JumpError"));
+		}
+	}
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package page;
 import javafx.scene.control.Slider;
 import javafx.scene.text.Text;
+import animation.Clusters;
 import cellSociety.CellSociety;
 
 /**
@@ -10,6 +11,10 @@ import cellSociety.CellSociety;
  */
 public class PageSpreadingOfFire extends UIsetup {
 	private Slider probAdjustor;
+	// statistics of the burn scars, shown once the fire is over
+	private int largestScar;
+	private boolean scarSpans;
+	private boolean showScars;
 	
 	/**
 	 * Constructor of the page of fire simulation
@@ -50,13 +55,26 @@ public class PageSpreadingOfFire extends UIsetup {
 	 */
 	@Override
 	protected void setupGrid(String newValue){
+		showScars = false;
 		super.setupGrid(newValue);
 		// can add other layouts
 	}
 	
+	/**
+	 * The method to set the statistics of the burn scars the fire left.
+	 * Called by the game loop in CellSociety when nothing burns any more.
+	 * @param scars: the clusters of burned cells
+	 */
+	public void setBurnScars(Clusters scars){
+		largestScar = scars.getLargest();
+		scarSpans = scars.percolates();
+		showScars = true;
+	}
+	
 	/**
 	 * The method to update the parameters displayed at the top of the UI Screen.
-	 * For fire, the probability of catching fire needs to be added.
+	 * For fire, the probability of catching fire needs to be added,
+	 * and the largest burn scar and whether it spans the grid once the fire is over.
 	 */
 	@Override
 	public void updateTextInfo() {
@@ -64,6 +82,10 @@ public class PageSpreadingOfFire extends UIsetup {
 		String myText = getText() 
 				+ getMyResources().getString("ProbabilityParameter") 
 				+ this.getParametersController().getProb() + "\n";
+		if (showScars) {
+			myText += getMyResources().getString("LargestScarParameter") + largestScar + "\n"
+					+ getMyResources().getString(scarSpans ? "ScarSpansParameter" : "ScarContainedParameter") + "\n";
+		}
 		this.getInfo().setText(myText);
 	}
 
@@ -6,9 +6,11 @@ import java.util.Map;
 
 import cell.Indices;
 import grid.Grid;
-import grid.HexagonGrid;
-import grid.SquareGrid;
+import grid.Neighborhood;
+import grid.ShapeGrid;
+import grid.StateBuffer;
 import javafx.scene.paint.Color;
+import util.LongIntHashMap;
 
 /**
  * The class to hold all parameters for all simulations.
@@ -23,7 +25,7 @@ public class Parameters {
 	private int numberOfStatus;
 	// 1 default status, (n-1) other status
 	private Map<Integer, Double> statusPercentage;  // store the percentage of cell of each status
-	private Map<Indices, Integer> statusDistribution; // store specific locations and status of cells
+	private LongIntHashMap statusDistribution; // store specific locations and status of cells
 	private Map <Integer, Color> colorMap;	
 	private int colNum;
 	private int rowNum;
@@ -35,16 +37,41 @@ public class Parameters {
 	private Grid theGrid;
 	private boolean gridVisible;
 	private Map<String, Double> slimeDivisionLevels; // levels to indicate different levels in slimes
+	private String neighborhoodType; // Moore or VonNeumann, null for the neighbors of the grid shape
+	private int neighborhoodRadius;
+	private Neighborhood theNeighborhood;
+	private String storage = StateBuffer.HEAP; // heap, offheap, mapped or packed
+	private String storageFile; // file of a mapped grid, null for a temporary file
+	private String engine; // Game of Life engine, null for the one that works on every grid
+	private int cacheNodes; // nodes the hashlife engine keeps before dropping its cache
+	private String rule; // birth/survival rule of Game of Life, null for B3/S23
+	private int threads = 1; // threads stepping the grid, 0 for one per processor
+	private long seed; // seed of the random numbers, from the clock unless the file sets one
 	
 	/**
 	 * Constructor of the Parameters class.
 	 */
 	public Parameters() {
 		statusPercentage = new HashMap<Integer, Double>();
-		statusDistribution = new HashMap<Indices, Integer>();
+		statusDistribution = new LongIntHashMap();
 		colorMap = new HashMap<Integer, Color>();
 		seaItems = new HashMap<Integer, Double>();
 		slimeDivisionLevels = new HashMap<String, Double>();
+		resetOptionalSettings();
+	}
+	
+	/**
+	 * The method to set the settings a simulation file may leave out back to their defaults.
+	 * Called before each file is parsed, so they do not carry over from the last file.
+	 */
+	public void resetOptionalSettings(){
+		neighborhoodType = null;
+		neighborhoodRadius = 1;
+		theNeighborhood = null;
+		engine = null;
+		cacheNodes = 1 << 20;
+		rule = null;
+		seed = System.nanoTime();
 	}
 	
 	public String getType(){
@@ -66,12 +93,7 @@ public class Parameters {
 	 * @return int: cell status
 	 */
 	protected int getStatusDistribution(int col, int row){
-		if (statusDistribution.containsKey(new Indices(col, row))){
-			return statusDistribution.get(new Indices(col, row));
-		}
-		else{
-			return defaultStatus;
-		}
+		return statusDistribution.get(Indices.pack(col, row), defaultStatus);
 	}
 
 	/**
@@ -138,11 +160,10 @@ public class Parameters {
 	
 	public void setCellShape(String cs){
 		cellShape = cs;
-		if (cs.equals("Square")){
-			theGrid = new SquareGrid(true);
-		}
-		else if (cs.equals("Hexagon")){
-			theGrid = new HexagonGrid(false);
+		theNeighborhood = null;
+		Grid g = ShapeGrid.create(cs);
+		if (g != null){
+			theGrid = g;
 		}
 	}
 	
@@ -150,6 +171,98 @@ public class Parameters {
 		return theGrid;
 	}
 	
+	/**
+	 * The method to get the neighborhood of a given radius chosen in the XML file.
+	 * Only square grids support it; other shapes always use the neighbors of their grid.
+	 * @return Neighborhood, or null if no neighborhood is chosen
+	 */
+	public Neighborhood getNeighborhood(){
+		if (neighborhoodType == null || cellShape == null || !cellShape.equals("Square")){
+			return null;
+		}
+		if (theNeighborhood == null){
+			theNeighborhood = Neighborhood.create(neighborhoodType, neighborhoodRadius, theGrid.isToroidal());
+		}
+		return theNeighborhood;
+	}
+	
+	public void setNeighborhoodType(String type){
+		neighborhoodType = type;
+		theNeighborhood = null;
+	}
+	
+	public void setNeighborhoodRadius(int r){
+		neighborhoodRadius = r;
+		theNeighborhood = null;
+	}
+	
+	/**
+	 * The method to get where the statuses of the cells are stored.
+	 * @return String: StateBuffer.HEAP, StateBuffer.OFF_HEAP, StateBuffer.MAPPED or StateBuffer.PACKED
+	 */
+	public String getStorage(){
+		return storage;
+	}
+	
+	public void setStorage(String s){
+		storage = s;
+	}
+	
+	public String getEngine(){
+		return engine;
+	}
+	
+	public void setEngine(String e){
+		engine = e;
+	}
+	
+	public String getRule(){
+		return rule;
+	}
+	
+	public void setRule(String r){
+		rule = r;
+	}
+	
+	public int getCacheNodes(){
+		return cacheNodes;
+	}
+	
+	public void setCacheNodes(int n){
+		cacheNodes = n;
+	}
+	
+	/**
+	 * The method to get how many threads step the grid in bands of rows.
+	 * @return int: at least 1, one per processor when the configuration asks for 0
+	 */
+	public int getThreads(){
+		if (threads == 0){
+			return Runtime.getRuntime().availableProcessors();
+		}
+		return threads;
+	}
+	
+	public void setThreads(int t){
+		threads = t;
+	}
+	
+	public long getSeed(){
+		return seed;
+	}
+	
+	public void setSeed(long s){
+		seed = s;
+	}
+	
+	public String getStorageFile(){
+		return storageFile;
+	}
+	
+	public void setStorageFile(String f){
+		storageFile = f;
+	}
+	
 	public boolean isGridVisible(){
 		return gridVisible;
 	}
@@ -187,8 +300,7 @@ public class Parameters {
 	}
 	
 	public void setCellStatus(int col, int row, int state){
-		Indices newKey = new Indices(col, row);
-		statusDistribution.put(newKey, state);
+		statusDistribution.put(Indices.pack(col, row), state);
 	}
 	
 	public void setSpeed (double s) {
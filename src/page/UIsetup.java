@@ -81,7 +81,7 @@ public abstract class UIsetup extends GamePage {
 	 */
 	private VBox addButtons(){
 		VBox buttonBox = new VBox(5);
-		buttonBox.getChildren().addAll(this.getStart(), this.getStop(), this.getStep(), this.getBack());
+		buttonBox.getChildren().addAll(this.getStart(), this.getStop(), this.getStep(), this.getJumpTarget(), this.getJump(), this.getBack());
 		buttonBox.setAlignment(Pos.CENTER);
 		return buttonBox;		
 	}
@@ -172,6 +172,7 @@ public abstract class UIsetup extends GamePage {
 		this.getCellSociety().stopGameLoop();
 		this.getGrid().getChildren().clear();
 		this.setCurrentStep(0);
+		this.setCyclePeriod(0);
 		updateTextInfo();
 		if (newValue.equals("Input")){
 			generateAllCells();
@@ -191,7 +192,8 @@ public abstract class UIsetup extends GamePage {
 					int cellStatus = this.getCellStatus(col, row);
 					boolean visible = this.getParametersController().isGridVisible();
 					Cell newCell = new SquareCell(centerX, centerY, width, height, cellStatus, visible);
-					newCell.getShape().setOnMouseClicked(e -> updateCellStatusOnMouseReleased(newCell));
+					int x = col, y = row;
+					newCell.getShape().setOnMouseClicked(e -> updateCellStatusOnMouseReleased(newCell, x, y));
 					addCell(col,row, newCell);
 					getCell(col,row).changeColor(this.getParametersController().getColor(getCell(col,row).getStatus()));
 					this.getGrid().getChildren().add(getCell(col,row).getShape());
@@ -201,29 +203,21 @@ public abstract class UIsetup extends GamePage {
 			}
 		}
 		else if (shape.equals("Triangle")){
-			boolean up = true;
 			double width = 2 * Parameters.gridWidth / (this.getParametersController().getCol() + 1);
 			double height = Parameters.gridHeight / this.getParametersController().getRow();
 			for (int col = 0; col < this.getParametersController().getCol(); col ++){
-				double centerY = 0;
-				if (!up){
-					centerY -= 1 / 3 * height;
-				}
 				for (int row = 0; row < this.getParametersController().getRow(); row++){  
+					// same orientation rule as TriangleGrid, the center is the centroid of the triangle
+					boolean up = ((col + row) % 2 == 0);
+					double centerY = row * height + (up ? 2 * height / 3 : height / 3);
 					int cellStatus = this.getCellStatus(col, row);
 					boolean visible = this.getParametersController().isGridVisible();
 					Cell newCell = new TriangleCell(centerX, centerY, width, height, cellStatus, visible, up);
-					newCell.getShape().setOnMouseClicked(e -> updateCellStatusOnMouseReleased(newCell));
+					int x = col, y = row;
+					newCell.getShape().setOnMouseClicked(e -> updateCellStatusOnMouseReleased(newCell, x, y));
 					addCell(col,row, newCell);
 					getCell(col,row).changeColor(this.getParametersController().getColor(getCell(col,row).getStatus()));
 					this.getGrid().getChildren().add(getCell(col,row).getShape());
-					if (up){
-						centerY += 2 / 3 * height;
-					}
-					else{
-						centerY += 4 / 3 * height;
-					}
-					up = !up;
 				}
 				centerX += width / 2;
 			}
@@ -238,7 +232,8 @@ public abstract class UIsetup extends GamePage {
 					int cellStatus = this.getCellStatus(col, row);
 					boolean visible = this.getParametersController().isGridVisible();
 					Cell newCell = new HexagonCell(centerX, centerY, width, height, cellStatus, visible);
-					newCell.getShape().setOnMouseClicked(e -> updateCellStatusOnMouseReleased(newCell));
+					int x = col, y = row;
+					newCell.getShape().setOnMouseClicked(e -> updateCellStatusOnMouseReleased(newCell, x, y));
 					addCell(col,row, newCell);
 					getCell(col,row).changeColor(this.getParametersController().getColor(getCell(col,row).getStatus()));
 					this.getGrid().getChildren().add(getCell(col,row).getShape());
@@ -252,8 +247,10 @@ public abstract class UIsetup extends GamePage {
 	/**
 	 * The method to update the status of a cell when it is clicked.
 	 * @param cell
+	 * @param col: the index of column
+	 * @param row: the index of row
 	 */
-	private void updateCellStatusOnMouseReleased(Cell cell) {
+	private void updateCellStatusOnMouseReleased(Cell cell, int col, int row) {
 		int oldStatus = cell.getStatus();
 		int newStatus;
 		if (oldStatus < this.getParametersController().getNumberOfStatus() - 1){
@@ -264,6 +261,7 @@ public abstract class UIsetup extends GamePage {
 			newStatus = 0;
 			cell.changeStatus(newStatus);
 		}
+		getStateBuffer().set(col, row, newStatus);
 		cell.changeColor(this.getParametersController().getColor(cell.getStatus()));
 		updateTextInfo();
 		updateColorandData();
@@ -300,6 +298,9 @@ public abstract class UIsetup extends GamePage {
 				+ getMyResources().getString("GridHeightParameter") + Parameters.gridHeight + "\n"
 				+ getMyResources().getString("StepParameter") + this.getParametersController().getSpeed() + "\n"
 				+ getMyResources().getString("CurrentStepParameter") + getCurrentStep()+ "\n";
+		if (getCyclePeriod() > 0) {
+			text += getMyResources().getString("CyclePeriodParameter") + getCyclePeriod() + "\n";
+		}
 		this.getInfo().setText(text);
 	}
 	
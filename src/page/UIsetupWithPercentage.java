@@ -1,10 +1,10 @@
 package page;
 import java.util.Map;
-import java.util.Random;
 
 import cellSociety.CellSociety;
 import javafx.scene.control.Slider;
 import javafx.scene.text.Text;
+import util.CounterRandom;
 
 /**
  * Abstract sub class of UIsetup for simulations with percentage.
@@ -14,6 +14,8 @@ import javafx.scene.text.Text;
  */
 public abstract class UIsetupWithPercentage extends UIsetup {
 	
+	private CounterRandom layoutRandom;
+	
 	/**
 	 * Constructor of the abstract class.
 	 * @param cs
@@ -46,6 +48,16 @@ public abstract class UIsetupWithPercentage extends UIsetup {
 		this.setupGrid(this.getOptions().get(0));
 	}
 
+	/**
+	 * The method to set up the grid layout, with one generator for all the cells of the layout.
+	 * Overrides the super class method.
+	 */
+	@Override
+	protected void setupGrid(String newValue){
+		layoutRandom = new CounterRandom(this.getParametersController().getSeed());
+		super.setupGrid(newValue);
+	}
+
 	/**
 	 * The method to calculate status for a give cell based on percentage.
 	 * Overrides the super class method.
@@ -53,8 +65,8 @@ public abstract class UIsetupWithPercentage extends UIsetup {
 	@Override
 	protected int getCellStatus(int col, int row){
 		int status = 0;
-		Random rn = new Random();
-		double indicator = rn.nextDouble();
+		// the layout is step 0 of the seeded numbers, the simulation steps start at 1
+		double indicator = layoutRandom.nextDouble(0, (long) row * this.getParametersController().getCol() + col, 0);
 		int numberOfStates = this.getParametersController().getNumberOfStatus();
 		double prevStateProb = 0, nextStateProb = 0;
 		for (int i = 0; i < numberOfStates; i++){
@@ -0,0 +1,61 @@
+package util;
+
+/**
+ * A counter-based random generator: every number is a hash of the seed, the step,
+ * the cell and which draw of the cell it is, mixed with the SplitMix64 finalizer.
+ * Nothing is shared between draws, so the numbers do not depend on the order they are
+ * drawn in or on how many threads draw them, and the same seed gives the same run.
+ */
+public class CounterRandom {
+
+	private static final long GOLDEN = 0x9e3779b97f4a7c15L;
+
+	private final long seed;
+
+	/**
+	 * Constructor of the CounterRandom class.
+	 * @param seed: the seed every number is derived from
+	 */
+	public CounterRandom(long seed) {
+		this.seed = mix(seed + GOLDEN);
+	}
+
+	/**
+	 * @param step: the step of the simulation
+	 * @param index: the linear index of the cell drawing
+	 * @param draw: which of the draws of the cell in the step this is
+	 * @return 64 random bits
+	 */
+	public long nextLong(long step, long index, int draw) {
+		long z = mix(seed + step * GOLDEN);
+		z = mix(z + index * GOLDEN);
+		return mix(z + draw * GOLDEN);
+	}
+
+	/**
+	 * @param step: the step of the simulation
+	 * @param index: the linear index of the cell drawing
+	 * @param draw: which of the draws of the cell in the step this is
+	 * @return a random double in [0, 1)
+	 */
+	public double nextDouble(long step, long index, int draw) {
+		return (nextLong(step, index, draw) >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * @param step: the step of the simulation
+	 * @param index: the linear index of the cell drawing
+	 * @param draw: which of the draws of the cell in the step this is
+	 * @param bound: the number of values, at least 1
+	 * @return a random int in [0, bound)
+	 */
+	public int nextInt(long step, long index, int draw, int bound) {
+		return (int) (((nextLong(step, index, draw) >>> 32) * bound) >>> 32);
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
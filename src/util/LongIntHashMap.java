@@ -0,0 +1,141 @@
+package util;
+
+/**
+ * An open-addressing map from long keys to int values, with no boxing.
+ * Keys are spread with a 64-bit mix and probed linearly in a table kept at most half full.
+ * The filled slots are listed, so clearing costs time in the number of keys, not the capacity,
+ * and a map reused after holding many keys stays cheap to clear.
+ */
+public class LongIntHashMap {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private long [] keys;
+	private int [] values;
+	private boolean [] used;
+	private int [] filled; // the slots in use, in the order they were filled
+	private int size;
+	private int mask;
+
+	/**
+	 * Constructor of the LongIntHashMap class.
+	 */
+	public LongIntHashMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor of the LongIntHashMap class.
+	 * @param expected: the number of keys the map should hold without growing
+	 */
+	public LongIntHashMap(int expected) {
+		allocate(tableSize(expected));
+	}
+
+	/**
+	 * Stores a value for a key, replacing any value stored before.
+	 * @param key
+	 * @param value
+	 */
+	public void put(long key, int value) {
+		int slot = find(key);
+		if (used[slot]) {
+			values[slot] = value;
+			return;
+		}
+		used[slot] = true;
+		keys[slot] = key;
+		values[slot] = value;
+		filled[size++] = slot;
+		if (2 * size > keys.length) {
+			rehash(keys.length * 2);
+		}
+	}
+
+	/**
+	 * @param key
+	 * @param defaultValue: the value returned when the key is not in the map
+	 * @return int: the value of the key, or defaultValue
+	 */
+	public int get(long key, int defaultValue) {
+		int slot = find(key);
+		return used[slot] ? values[slot] : defaultValue;
+	}
+
+	public boolean containsKey(long key) {
+		return used[find(key)];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		int i;
+
+		for (i = 0; i < size; i++) {
+			used[filled[i]] = false;
+		}
+		size = 0;
+	}
+
+	private int find(long key) {
+		int slot = mix(key) & mask;
+		while (used[slot] && (keys[slot] != key)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash(int capacity) {
+		long [] oldKeys = keys;
+		int [] oldValues = values;
+		boolean [] oldUsed = used;
+		int i, slot, k = 0;
+
+		allocate(capacity);
+		for (i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				slot = find(oldKeys[i]);
+				used[slot] = true;
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+				filled[k++] = slot;
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+		filled = new int[capacity / 2 + 1];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * @param expected: the number of keys to hold
+	 * @return int: the smallest power of two at least twice expected
+	 */
+	static int tableSize(int expected) {
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity < 2L * expected) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	/**
+	 * The finalizer of MurmurHash3, so that packed (col, row) keys do not cluster.
+	 * @param key
+	 * @return int: the mixed low bits of the key
+	 */
+	static int mix(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
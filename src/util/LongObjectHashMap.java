@@ -0,0 +1,125 @@
+package util;
+
+/**
+ * An open-addressing map from long keys to objects, with no boxing of the keys.
+ * Uses the same probing as LongIntHashMap.
+ * @param <V> the type of the values, which cannot be null
+ */
+public class LongObjectHashMap<V> {
+
+	private long [] keys;
+	private Object [] values;
+	private int size;
+	private int mask;
+
+	/**
+	 * Constructor of the LongObjectHashMap class.
+	 */
+	public LongObjectHashMap() {
+		this(0);
+	}
+
+	/**
+	 * Constructor of the LongObjectHashMap class.
+	 * @param expected: the number of keys the map should hold without growing
+	 */
+	public LongObjectHashMap(int expected) {
+		allocate(LongIntHashMap.tableSize(expected));
+	}
+
+	/**
+	 * Stores a value for a key, replacing any value stored before.
+	 * @param key
+	 * @param value: a value that is not null
+	 */
+	public void put(long key, V value) {
+		if (value == null) {
+			throw new IllegalArgumentException("LongObjectHashMap cannot hold null values");
+		}
+		int slot = find(key);
+		if (values[slot] == null) {
+			keys[slot] = key;
+			size++;
+		}
+		values[slot] = value;
+		if (2 * size > keys.length) {
+			rehash(keys.length * 2);
+		}
+	}
+
+	/**
+	 * @param key
+	 * @return V: the value of the key, or null if it is not in the map
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		return (V) values[find(key)];
+	}
+
+	public boolean containsKey(long key) {
+		return values[find(key)] != null;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * The number of slots, for iterating with keyAt and valueAt
+	 * @return int: the size of the table
+	 */
+	public int capacity() {
+		return keys.length;
+	}
+
+	/**
+	 * @param slot: a slot between 0 and capacity() - 1
+	 * @return long: the key in the slot, meaningful only when valueAt(slot) is not null
+	 */
+	public long keyAt(int slot) {
+		return keys[slot];
+	}
+
+	/**
+	 * @param slot: a slot between 0 and capacity() - 1
+	 * @return V: the value in the slot, or null if the slot is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public V valueAt(int slot) {
+		return (V) values[slot];
+	}
+
+	public void clear() {
+		java.util.Arrays.fill(values, null);
+		size = 0;
+	}
+
+	private int find(long key) {
+		int slot = LongIntHashMap.mix(key) & mask;
+		while ((values[slot] != null) && (keys[slot] != key)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash(int capacity) {
+		long [] oldKeys = keys;
+		Object [] oldValues = values;
+		int i, slot;
+
+		allocate(capacity);
+		for (i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] != null) {
+				slot = find(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+	}
+}
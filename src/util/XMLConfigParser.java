@@ -15,6 +15,9 @@ public class XMLConfigParser extends DefaultHandler {
 	
 	private boolean bShape = false;
 	private boolean bVisible = false;
+	private boolean bStorage = false;
+	private boolean bStorageFile = false;
+	private boolean bThreads = false;
 
 	public XMLConfigParser(Parameters p) {
 		inputController = new XMLParametersController(p);
@@ -29,6 +32,15 @@ public class XMLConfigParser extends DefaultHandler {
 			else if (qName.equals("visible")){
 				bVisible = true;
 			}
+			else if (qName.equals("storage")){
+				bStorage = true;
+			}
+			else if (qName.equals("storageFile")){
+				bStorageFile = true;
+			}
+			else if (qName.equals("threads")){
+				bThreads = true;
+			}
 		}
 		catch(Exception e){
 			DisplayAlert.displayAlert(e.getMessage());
@@ -43,6 +55,15 @@ public class XMLConfigParser extends DefaultHandler {
 		else if (qName.equals("visible")){
 			bVisible = false;
 		}
+		else if (qName.equals("storage")){
+			bStorage = false;
+		}
+		else if (qName.equals("storageFile")){
+			bStorageFile = false;
+		}
+		else if (qName.equals("threads")){
+			bThreads = false;
+		}
 	}
 
 	@Override
@@ -54,6 +75,15 @@ public class XMLConfigParser extends DefaultHandler {
 			else if (bVisible) {
 				inputController.setGridVisible(Boolean.parseBoolean(new String(ch, start, length)));
 			}
+			else if (bStorage) {
+				inputController.setStorage(new String(ch, start, length).trim());
+			}
+			else if (bStorageFile) {
+				inputController.setStorageFile(new String(ch, start, length).trim());
+			}
+			else if (bThreads) {
+				inputController.setThreads(Integer.parseInt(new String(ch, start, length).trim()));
+			}
 		}
 		catch(Exception e){
 			DisplayAlert.displayAlert(e.getMessage());
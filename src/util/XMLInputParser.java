@@ -28,6 +28,12 @@ public class XMLInputParser extends DefaultHandler{
 	private boolean bTurnover = false;
 	private boolean bUpper = false;
 	private boolean bLower = false;
+	private boolean bNeighborhood = false;
+	private boolean bRadius = false;
+	private boolean bEngine = false;
+	private boolean bCacheNodes = false;
+	private boolean bRule = false;
+	private boolean bSeed = false;
 	private double turnover = 0;
 	private int state = 0;
 	private int row = 0;
@@ -44,6 +50,15 @@ public class XMLInputParser extends DefaultHandler{
 		inputController = new XMLParametersController(p);
 	}
 
+	/**
+	 * Puts the optional settings back to their defaults, so a setting of a file loaded before
+	 * does not carry into this one when the file leaves it out.
+	 */
+	@Override
+	public void startDocument() throws SAXException {
+		inputController.resetOptionalSettings();
+	}
+
 	@Override
 	public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
 		try{
@@ -95,6 +110,24 @@ public class XMLInputParser extends DefaultHandler{
 			else if (qName.equals("lower")){
 				bLower = true;
 			}
+			else if (qName.equals("neighborhood")){
+				bNeighborhood = true;
+			}
+			else if (qName.equals("radius")){
+				bRadius = true;
+			}
+			else if (qName.equals("engine")){
+				bEngine = true;
+			}
+			else if (qName.equals("cacheNodes")){
+				bCacheNodes = true;
+			}
+			else if (qName.equals("rule")){
+				bRule = true;
+			}
+			else if (qName.equals("seed")){
+				bSeed = true;
+			}
 		}
 		catch(Exception e){
 			DisplayAlert.displayAlert(e.getMessage());
@@ -156,6 +189,24 @@ public class XMLInputParser extends DefaultHandler{
 		else if (qName.equals("lower")){
 			bLower = false;
 		}
+		else if (qName.equals("neighborhood")){
+			bNeighborhood = false;
+		}
+		else if (qName.equals("radius")){
+			bRadius = false;
+		}
+		else if (qName.equals("engine")){
+			bEngine = false;
+		}
+		else if (qName.equals("cacheNodes")){
+			bCacheNodes = false;
+		}
+		else if (qName.equals("rule")){
+			bRule = false;
+		}
+		else if (qName.equals("seed")){
+			bSeed = false;
+		}
 	}
 
 	@Override
@@ -203,6 +254,24 @@ public class XMLInputParser extends DefaultHandler{
 			else if (bLower){
 				inputController.setSlimeLevel("lower", Double.parseDouble(new String(ch, start, length)));
 			}
+			else if (bNeighborhood){
+				inputController.setNeighborhood(new String(ch, start, length).trim());
+			}
+			else if (bRadius){
+				inputController.setRadius(Integer.parseInt(new String(ch, start, length).trim()));
+			}
+			else if (bEngine){
+				inputController.setEngine(new String(ch, start, length).trim());
+			}
+			else if (bCacheNodes){
+				inputController.setCacheNodes(Integer.parseInt(new String(ch, start, length).trim()));
+			}
+			else if (bRule){
+				inputController.setRule(new String(ch, start, length).trim());
+			}
+			else if (bSeed){
+				inputController.setSeed(Long.parseLong(new String(ch, start, length).trim()));
+			}
 		}
 		catch(Exception e){
 			DisplayAlert.displayAlert(e.getMessage());
@@ -1,5 +1,7 @@
 package util;
 
+import animation.LifeRule;
+import grid.StateBuffer;
 import javafx.scene.paint.Color;
 import page.Parameters;
 
@@ -201,6 +203,41 @@ public class XMLParametersController {
 		parametersController.setCellShape(shape);
 	}
 	
+	/**
+	 * Set where the statuses of the cells are stored.
+	 * @param storage: heap, offheap, mapped or packed
+	 */
+	public void setStorage (String storage) {
+		if (storage.equals(StateBuffer.HEAP) || storage.equals(StateBuffer.OFF_HEAP) || storage.equals(StateBuffer.MAPPED)
+				|| storage.equals(StateBuffer.PACKED)){
+			parametersController.setStorage(storage);
+		}
+		else{
+			throwException("The storage must be heap, offheap, mapped or packed!");
+		}
+	}
+	
+	/**
+	 * Set the file a mapped grid is stored in.
+	 * @param file
+	 */
+	public void setStorageFile (String file) {
+		parametersController.setStorageFile(file);
+	}
+	
+	/**
+	 * Set how many threads step the grid.
+	 * @param threads: 1 to step on the JavaFX thread, 0 for one per processor
+	 */
+	public void setThreads (int threads) {
+		if (threads >= 0){
+			parametersController.setThreads(threads);
+		}
+		else{
+			throwException("The number of threads must not be negative!");
+		}
+	}
+	
 	/**
 	 * Set the boolean variable if the grid is visible.
 	 * @param is
@@ -223,6 +260,86 @@ public class XMLParametersController {
 		}
 	}
 	
+	/**
+	 * Set the neighborhood, radius, engine, node cache, rule and seed back to their defaults.
+	 */
+	public void resetOptionalSettings(){
+		parametersController.resetOptionalSettings();
+	}
+	
+	/**
+	 * Set the type of neighborhood used to count neighbors.
+	 * @param type: Moore or VonNeumann
+	 */
+	public void setNeighborhood(String type){
+		if (type.equals("Moore") || type.equals("VonNeumann")){
+			parametersController.setNeighborhoodType(type);
+		}
+		else{
+			throwException("The neighborhood must be Moore or VonNeumann!");
+		}
+	}
+	
+	/**
+	 * Set the radius of the neighborhood.
+	 * @param radius
+	 */
+	public void setRadius(int radius){
+		if (radius >= 1){
+			parametersController.setNeighborhoodRadius(radius);
+		}
+		else{
+			throwException("The radius of a neighborhood must be at least 1!");
+		}
+	}
+	
+	/**
+	 * Set the engine stepping Game of Life.
+	 * @param engine: bitboard, hashlife or sparse
+	 */
+	public void setEngine(String engine){
+		if (engine.equals("bitboard") || engine.equals("hashlife") || engine.equals("sparse")){
+			parametersController.setEngine(engine);
+		}
+		else{
+			throwException("The engine must be bitboard, hashlife or sparse!");
+		}
+	}
+	
+	/**
+	 * Set the birth/survival rule of Game of Life, such as B3/S23, B36/S23 or B34..45/S33..57.
+	 * @param rule
+	 */
+	public void setRule(String rule){
+		try{
+			parametersController.setRule(LifeRule.parse(rule).toString());
+		}
+		catch(IllegalArgumentException e){
+			throwException(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Set the number of nodes the hashlife engine keeps before dropping its cache.
+	 * @param nodes
+	 */
+	public void setCacheNodes(int nodes){
+		if (nodes > 0){
+			parametersController.setCacheNodes(nodes);
+		}
+		else{
+			throwException("The node cache must hold at least one node!");
+		}
+	}
+	
+	/**
+	 * Set the seed of the random numbers, so a run can be repeated.
+	 * @param seed
+	 */
+	public void setSeed(long seed){
+		parametersController.setSeed(seed);
+	}
+	
 	private void throwException (String message) {
 		try {
 			throw new Exception (message);
@@ -0,0 +1,69 @@
+package grid;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The RowKernel of the Vector API: each neighbor row segment is compared with the status
+ * a whole byte vector at a time, the matches are added as bytes (at most 8, so they cannot overflow),
+ * and the byte sums are widened into int vectors for the counts.
+ * Compile and run with --add-modules jdk.incubator.vector; RowKernels loads it by name.
+ */
+public class VectorRowKernel implements RowKernel {
+
+	private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+	private static final int PARTS = BYTES.length() / INTS.length();
+
+	@Override
+	public void countAll(byte [] up, byte [] mid, byte [] down, int start, int length, byte status, int [] counts, int offset) {
+		ByteVector one = ByteVector.broadcast(BYTES, (byte) 1);
+		ByteVector sum;
+		int i, p;
+
+		for (i = 0; i + BYTES.length() <= length; i += BYTES.length()) {
+			p = start + i;
+			sum = ByteVector.zero(BYTES);
+			sum = add(sum, one, up, p - 1, status);
+			sum = add(sum, one, up, p, status);
+			sum = add(sum, one, up, p + 1, status);
+			sum = add(sum, one, mid, p - 1, status);
+			sum = add(sum, one, mid, p + 1, status);
+			sum = add(sum, one, down, p - 1, status);
+			sum = add(sum, one, down, p, status);
+			sum = add(sum, one, down, p + 1, status);
+			store(sum, counts, offset + i);
+		}
+		RowKernels.SCALAR.countAll(up, mid, down, start + i, length - i, status, counts, offset + i);
+	}
+
+	@Override
+	public void countImmediate(byte [] up, byte [] mid, byte [] down, int start, int length, byte status, int [] counts, int offset) {
+		ByteVector one = ByteVector.broadcast(BYTES, (byte) 1);
+		ByteVector sum;
+		int i, p;
+
+		for (i = 0; i + BYTES.length() <= length; i += BYTES.length()) {
+			p = start + i;
+			sum = ByteVector.zero(BYTES);
+			sum = add(sum, one, up, p, status);
+			sum = add(sum, one, mid, p - 1, status);
+			sum = add(sum, one, mid, p + 1, status);
+			sum = add(sum, one, down, p, status);
+			store(sum, counts, offset + i);
+		}
+		RowKernels.SCALAR.countImmediate(up, mid, down, start + i, length - i, status, counts, offset + i);
+	}
+
+	private static ByteVector add(ByteVector sum, ByteVector one, byte [] row, int p, byte status) {
+		return sum.add(one, ByteVector.fromArray(BYTES, row, p).eq(status));
+	}
+
+	private static void store(ByteVector sum, int [] counts, int offset) {
+		for (int part = 0; part < PARTS; part++) {
+			((IntVector) sum.convertShape(VectorOperators.B2I, INTS, part)).intoArray(counts, offset + part * INTS.length());
+		}
+	}
+}